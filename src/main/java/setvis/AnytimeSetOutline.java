@@ -0,0 +1,30 @@
+/**
+ * 
+ */
+package setvis;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * A {@link SetOutline} that can stop early and return an approximate outline
+ * when a calculation takes too long. How the time limit is set depends on the
+ * implementation.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+public interface AnytimeSetOutline extends SetOutline {
+
+  /**
+   * Creates the outline and reports whether it had to be cut short.
+   * 
+   * @param members The members of the set.
+   * @param nonMembers The items that are not in the set.
+   * @param lines The lines guiding the outline. May be <code>null</code>.
+   * @return The outline.
+   * @see #createOutline(Rectangle2D[], Rectangle2D[], Line2D[])
+   */
+  OutlineResult createOutlineResult(Rectangle2D[] members,
+      Rectangle2D[] nonMembers, Line2D[] lines);
+
+}
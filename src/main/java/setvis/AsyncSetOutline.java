@@ -0,0 +1,125 @@
+/**
+ * 
+ */
+package setvis;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Calculates outlines of a {@link SetOutline} in the background. Each request
+ * returns a {@link Future}. Cancelling it with
+ * {@link Future#cancel(boolean) cancel(true)} interrupts the calculation.
+ * {@link setvis.bubbleset.BubbleSet} checks for interruption between its
+ * phases and inside its loops, so obsolete requests stop almost immediately.
+ * The input is copied when a request is made, so the rectangles may be changed
+ * afterwards.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+public final class AsyncSetOutline {
+
+  /** The outline calculating the results. */
+  private final SetOutline outline;
+
+  /** The executor running the calculations. */
+  private final Executor executor;
+
+  /**
+   * Creates an asynchronous outline.
+   * 
+   * @param outline The outline calculating the results. It must allow
+   *          concurrent calls if the executor uses multiple threads.
+   * @param executor The executor running the calculations.
+   */
+  public AsyncSetOutline(final SetOutline outline, final Executor executor) {
+    if(outline == null) throw new NullPointerException("outline");
+    if(executor == null) throw new NullPointerException("executor");
+    this.outline = outline;
+    this.executor = executor;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The outline calculating the results.
+   */
+  public SetOutline getSetOutline() {
+    return outline;
+  }
+
+  /**
+   * Starts the calculation of an outline.
+   * 
+   * @param members The rectangles to include.
+   * @param nonMembers The rectangles to avoid.
+   * @return The future outline.
+   * @see SetOutline#createOutline(Rectangle2D[], Rectangle2D[])
+   */
+  public Future<Point2D[]> createOutline(final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers) {
+    return createOutline(members, nonMembers, null);
+  }
+
+  /**
+   * Starts the calculation of an outline.
+   * 
+   * @param members The rectangles to include.
+   * @param nonMembers The rectangles to avoid.
+   * @param lines The lines guiding the outline creation. <code>null</code>
+   *          values are permitted.
+   * @return The future outline.
+   * @see SetOutline#createOutline(Rectangle2D[], Rectangle2D[], Line2D[])
+   */
+  public Future<Point2D[]> createOutline(final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers, final Line2D[] lines) {
+    final Rectangle2D[] m = copy(members);
+    final Rectangle2D[] n = copy(nonMembers);
+    final Line2D[] l = lines != null ? copy(lines) : null;
+    final FutureTask<Point2D[]> task =
+        new FutureTask<Point2D[]>(new Callable<Point2D[]>() {
+
+          @Override
+          public Point2D[] call() throws Exception {
+            return outline.createOutline(m, n, l);
+          }
+
+        });
+    executor.execute(task);
+    return task;
+  }
+
+  /**
+   * Copies rectangles.
+   * 
+   * @param rects The rectangles.
+   * @return The copies.
+   */
+  private static Rectangle2D[] copy(final Rectangle2D[] rects) {
+    final Rectangle2D[] res = new Rectangle2D[rects.length];
+    for(int i = 0; i < res.length; ++i) {
+      res[i] = (Rectangle2D) rects[i].clone();
+    }
+    return res;
+  }
+
+  /**
+   * Copies lines.
+   * 
+   * @param lines The lines.
+   * @return The copies.
+   */
+  private static Line2D[] copy(final Line2D[] lines) {
+    final Line2D[] res = new Line2D[lines.length];
+    for(int i = 0; i < res.length; ++i) {
+      res[i] = (Line2D) lines[i].clone();
+    }
+    return res;
+  }
+
+}
@@ -0,0 +1,445 @@
+/**
+ * 
+ */
+package setvis;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the outlines created by another {@link SetOutline}. Outlines are
+ * identified by the exact coordinates and order of the members, non-members,
+ * and lines. If the wrapped outline is a {@link ConfigurableSetOutline} its
+ * parameters are part of the key as well. Other outlines are expected to
+ * always produce the same result for the same input. Outlines that have been
+ * cut short by an {@link AnytimeSetOutline} are not remembered. When the cache
+ * is full the least recently used outline is dropped. The cache can be used
+ * by multiple threads at the same time if the wrapped outline can.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+public class CachingSetOutline implements LocalSetOutline,
+    AnytimeSetOutline, PackedSetOutline, ClippableSetOutline {
+
+  /**
+   * The key of a cached outline.
+   * 
+   * @author Joschi <josua.krause@googlemail.com>
+   */
+  private static final class Key {
+
+    /**
+     * The coordinates of the members, the non-members, and the lines in this
+     * order.
+     */
+    private final double[] coords;
+
+    /** The number of members. */
+    private final int members;
+
+    /** The number of non-members. */
+    private final int nonMembers;
+
+    /** The number of lines or <code>-1</code> if there are none. */
+    private final int lines;
+
+    /** The parameters of the wrapped outline. May be <code>null</code>. */
+    private final Object parameters;
+
+    /** The cached hash code. */
+    private final int hash;
+
+    /**
+     * Creates a key.
+     * 
+     * @param members The members.
+     * @param nonMembers The non-members.
+     * @param lines The lines. May be <code>null</code>.
+     * @param parameters The parameters of the wrapped outline. May be
+     *          <code>null</code>.
+     */
+    public Key(final Rectangle2D[] members, final Rectangle2D[] nonMembers,
+        final Line2D[] lines, final Object parameters) {
+      this.members = members.length;
+      this.nonMembers = nonMembers.length;
+      this.lines = lines != null ? lines.length : -1;
+      this.parameters = parameters;
+      coords = new double[(this.members + this.nonMembers) * 4
+          + Math.max(this.lines, 0) * 4];
+      int pos = 0;
+      for(final Rectangle2D r : members) {
+        pos = put(r, pos);
+      }
+      for(final Rectangle2D r : nonMembers) {
+        pos = put(r, pos);
+      }
+      if(lines != null) {
+        for(final Line2D l : lines) {
+          coords[pos++] = l.getX1();
+          coords[pos++] = l.getY1();
+          coords[pos++] = l.getX2();
+          coords[pos++] = l.getY2();
+        }
+      }
+      hash = hash(coords, this.members, this.nonMembers, this.lines,
+          parameters);
+    }
+
+    /**
+     * Creates a key from packed arrays.
+     * 
+     * @param members The packed members.
+     * @param memberCount The number of members.
+     * @param nonMembers The packed non-members.
+     * @param nonMemberCount The number of non-members.
+     * @param lines The packed lines. May be <code>null</code>.
+     * @param lineCount The number of lines.
+     * @param parameters The parameters of the wrapped outline. May be
+     *          <code>null</code>.
+     */
+    public Key(final double[] members, final int memberCount,
+        final double[] nonMembers, final int nonMemberCount,
+        final double[] lines, final int lineCount, final Object parameters) {
+      this.members = memberCount;
+      this.nonMembers = nonMemberCount;
+      this.lines = lines != null ? lineCount : -1;
+      this.parameters = parameters;
+      coords = new double[(this.members + this.nonMembers) * 4
+          + Math.max(this.lines, 0) * 4];
+      System.arraycopy(members, 0, coords, 0, this.members * 4);
+      System.arraycopy(nonMembers, 0, coords, this.members * 4,
+          this.nonMembers * 4);
+      if(lines != null) {
+        System.arraycopy(lines, 0, coords,
+            (this.members + this.nonMembers) * 4, this.lines * 4);
+      }
+      hash = hash(coords, this.members, this.nonMembers, this.lines,
+          parameters);
+    }
+
+    /**
+     * Computes the hash code of a key.
+     * 
+     * @param coords The coordinates.
+     * @param members The number of members.
+     * @param nonMembers The number of non-members.
+     * @param lines The number of lines.
+     * @param parameters The parameters. May be <code>null</code>.
+     * @return The hash code.
+     */
+    private static int hash(final double[] coords, final int members,
+        final int nonMembers, final int lines, final Object parameters) {
+      int h = Arrays.hashCode(coords);
+      h = h * 31 + members;
+      h = h * 31 + nonMembers;
+      h = h * 31 + lines;
+      return h * 31 + (parameters != null ? parameters.hashCode() : 0);
+    }
+
+    /**
+     * Stores the coordinates of a rectangle.
+     * 
+     * @param r The rectangle.
+     * @param pos The position in {@link #coords}.
+     * @return The next position.
+     */
+    private int put(final Rectangle2D r, final int pos) {
+      coords[pos] = r.getX();
+      coords[pos + 1] = r.getY();
+      coords[pos + 2] = r.getWidth();
+      coords[pos + 3] = r.getHeight();
+      return pos + 4;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if(this == obj) return true;
+      if(!(obj instanceof Key)) return false;
+      final Key k = (Key) obj;
+      return hash == k.hash && members == k.members
+          && nonMembers == k.nonMembers && lines == k.lines
+          && (parameters == null ? k.parameters == null
+              : parameters.equals(k.parameters))
+          && Arrays.equals(coords, k.coords);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+  }
+
+  /** The default maximal number of cached outlines. */
+  public static final int DEFAULT_MAX_SIZE = 256;
+
+  /** The wrapped outline. */
+  private final SetOutline outline;
+
+  /** The maximal number of cached outlines. */
+  private final int maxSize;
+
+  /** The cached outlines in least recently used order. Guarded by this. */
+  private final Map<Key, Point2D[]> cache;
+
+  /** The number of requests answered by the cache. Guarded by this. */
+  private long hits;
+
+  /** The number of requests that had to be calculated. Guarded by this. */
+  private long misses;
+
+  /**
+   * Creates a cache with the default size.
+   * 
+   * @param outline The outline to wrap.
+   */
+  public CachingSetOutline(final SetOutline outline) {
+    this(outline, DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Creates a cache.
+   * 
+   * @param outline The outline to wrap.
+   * @param maxSize The maximal number of cached outlines.
+   */
+  public CachingSetOutline(final SetOutline outline, final int maxSize) {
+    if(outline == null) throw new NullPointerException("outline");
+    if(maxSize < 1) throw new IllegalArgumentException("maxSize: " + maxSize);
+    this.outline = outline;
+    this.maxSize = maxSize;
+    cache = new LinkedHashMap<Key, Point2D[]>(16, 0.75f, true) {
+
+      /** The serial version uid. */
+      private static final long serialVersionUID = 6104930815870233617L;
+
+      @Override
+      protected boolean removeEldestEntry(
+          final Map.Entry<Key, Point2D[]> eldest) {
+        return size() > CachingSetOutline.this.maxSize;
+      }
+
+    };
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The wrapped outline.
+   */
+  public SetOutline getSetOutline() {
+    return outline;
+  }
+
+  @Override
+  public Point2D[] createOutline(final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers) {
+    return createOutline(members, nonMembers, null);
+  }
+
+  @Override
+  public Point2D[] createOutline(final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers, final Line2D[] lines) {
+    return createOutlineResult(members, nonMembers, lines).getPoints();
+  }
+
+  /**
+   * Outlines of a wrapped outline that is no {@link AnytimeSetOutline} are
+   * never degraded.
+   */
+  @Override
+  public OutlineResult createOutlineResult(final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers, final Line2D[] lines) {
+    final Object parameters = getParameters();
+    final Key key = new Key(members, nonMembers, lines, parameters);
+    synchronized(this) {
+      final Point2D[] res = cache.get(key);
+      if(res != null) {
+        ++hits;
+        return new OutlineResult(copy(res), false);
+      }
+      ++misses;
+    }
+    final OutlineResult res = calculate(members, nonMembers, lines);
+    final Point2D[] points = copy(res.getPoints());
+    // do not store results calculated with changing parameters
+    if(!res.isDegraded() && equal(parameters, getParameters())) {
+      synchronized(this) {
+        cache.put(key, points);
+      }
+    }
+    return new OutlineResult(copy(points), res.isDegraded());
+  }
+
+  /**
+   * Cache hits are answered without creating objects. Calculated outlines are
+   * stored unless they are degraded.
+   */
+  @Override
+  public int createOutline(final double[] members, final int memberCount,
+      final double[] nonMembers, final int nonMemberCount,
+      final double[] lines, final int lineCount, final double[] out) {
+    final Object parameters = getParameters();
+    final Key key = new Key(members, memberCount, nonMembers, nonMemberCount,
+        lines, lineCount, parameters);
+    synchronized(this) {
+      final Point2D[] res = cache.get(key);
+      if(res != null) {
+        ++hits;
+        return PackedGeometry.writePoints(res, out);
+      }
+      ++misses;
+    }
+    final Rectangle2D[] m = PackedGeometry.toRects(members, memberCount);
+    final Rectangle2D[] n = PackedGeometry.toRects(nonMembers, nonMemberCount);
+    final Line2D[] l = PackedGeometry.toLines(lines, lineCount);
+    final OutlineResult res = calculate(m, n, l);
+    final Point2D[] points = copy(res.getPoints());
+    // do not store results calculated with changing parameters
+    if(!res.isDegraded() && equal(parameters, getParameters())) {
+      synchronized(this) {
+        cache.put(key, points);
+      }
+    }
+    return PackedGeometry.writePoints(points, out);
+  }
+
+  /**
+   * Calculates an outline with the wrapped outline.
+   * 
+   * @param members The members.
+   * @param nonMembers The non-members.
+   * @param lines The lines. May be <code>null</code>.
+   * @return The outline.
+   */
+  private OutlineResult calculate(final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers, final Line2D[] lines) {
+    if(outline instanceof AnytimeSetOutline) {
+      return ((AnytimeSetOutline) outline).createOutlineResult(members,
+          nonMembers, lines);
+    }
+    return new OutlineResult(outline.createOutline(members, nonMembers,
+        lines), false);
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The current parameters of the wrapped outline or
+   *         <code>null</code> if it has none.
+   */
+  private Object getParameters() {
+    if(!(outline instanceof ConfigurableSetOutline)) return null;
+    return ((ConfigurableSetOutline) outline).getConfiguration();
+  }
+
+  /**
+   * Compares two objects that may be <code>null</code>.
+   * 
+   * @param a The first object.
+   * @param b The second object.
+   * @return Whether both are equal.
+   */
+  private static boolean equal(final Object a, final Object b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  /**
+   * Copies the vertices of an outline.
+   * 
+   * @param points The vertices.
+   * @return The copy.
+   */
+  private static Point2D[] copy(final Point2D[] points) {
+    final Point2D[] res = new Point2D[points.length];
+    for(int i = 0; i < res.length; ++i) {
+      res[i] = (Point2D) points[i].clone();
+    }
+    return res;
+  }
+
+  /**
+   * The margin of the wrapped outline if it is a {@link LocalSetOutline}.
+   * Otherwise all non-members are needed.
+   */
+  @Override
+  public double getNonMemberMargin() {
+    if(!(outline instanceof LocalSetOutline)) return Double.POSITIVE_INFINITY;
+    return ((LocalSetOutline) outline).getNonMemberMargin();
+  }
+
+  /**
+   * The margin of the wrapped outline if it is a {@link ClippableSetOutline}.
+   * Otherwise the outline can not be bounded.
+   */
+  @Override
+  public double getOutlineMargin() {
+    if(!(outline instanceof ClippableSetOutline)) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return ((ClippableSetOutline) outline).getOutlineMargin();
+  }
+
+  /**
+   * Clipped outlines depend on the clip and are therefore not cached. If the
+   * wrapped outline is no {@link ClippableSetOutline} the whole outline is
+   * looked up instead.
+   */
+  @Override
+  public Point2D[] createClippedOutline(final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers, final Line2D[] lines,
+      final Rectangle2D clip) {
+    if(!(outline instanceof ClippableSetOutline)) return createOutline(members,
+        nonMembers, lines);
+    return ((ClippableSetOutline) outline).createClippedOutline(members,
+        nonMembers, lines, clip);
+  }
+
+  /**
+   * Removes all cached outlines. The statistics are kept.
+   */
+  public synchronized void clear() {
+    cache.clear();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of cached outlines.
+   */
+  public synchronized int getSize() {
+    return cache.size();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The maximal number of cached outlines.
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of requests answered by the cache.
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of requests that had to be calculated.
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+}
@@ -0,0 +1,44 @@
+/**
+ * 
+ */
+package setvis;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * A {@link SetOutline} that can restrict its work to a visible region. The
+ * outline stays within a known distance of the members, so sets far away from
+ * the region can be skipped altogether.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+public interface ClippableSetOutline extends SetOutline {
+
+  /**
+   * The distance around the bounding box of the members and lines that
+   * contains the outline.
+   * 
+   * @return The margin. Must not be negative.
+   *         {@link Double#POSITIVE_INFINITY} means that the outline can not be
+   *         bounded.
+   */
+  double getOutlineMargin();
+
+  /**
+   * Creates an outline that only needs to be correct within {@code clip}.
+   * Outside of the clip the outline may be cut off or missing.
+   * 
+   * @param members The rectangles to include.
+   * @param nonMembers The rectangles to avoid.
+   * @param lines The lines guiding the outline creation. The implementation is
+   *          free to ignore them. <code>null</code> values are permitted.
+   * @param clip The visible region.
+   * @return The vertices of the outline. The outline may be empty if it does
+   *         not reach into the clip.
+   */
+  Point2D[] createClippedOutline(Rectangle2D[] members,
+      Rectangle2D[] nonMembers, Line2D[] lines, Rectangle2D clip);
+
+}
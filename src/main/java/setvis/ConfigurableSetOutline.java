@@ -0,0 +1,23 @@
+/**
+ * 
+ */
+package setvis;
+
+/**
+ * A {@link SetOutline} whose results depend on parameters that can change.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+public interface ConfigurableSetOutline extends SetOutline {
+
+  /**
+   * Returns the current parameters. Two outline calculations with equal
+   * parameters and equal input must produce the same result. The returned
+   * object must be immutable and implement {@link Object#equals(Object)} and
+   * {@link Object#hashCode()}.
+   * 
+   * @return The parameters.
+   */
+  Object getConfiguration();
+
+}
@@ -0,0 +1,28 @@
+/**
+ * 
+ */
+package setvis;
+
+import java.awt.geom.Rectangle2D;
+
+/**
+ * A {@link SetOutline} whose result mainly depends on the non-members close to
+ * the members. Callers may leave out non-members that are further away than
+ * {@link #getNonMemberMargin()} from the bounding box of the members.
+ * Implementations document when this can change the result.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+public interface LocalSetOutline extends SetOutline {
+
+  /**
+   * The distance around the bounding box of the members in which non-members
+   * can influence the outline.
+   * 
+   * @return The margin. Must not be negative.
+   *         {@link Double#POSITIVE_INFINITY} means that all non-members are
+   *         needed.
+   */
+  double getNonMemberMargin();
+
+}
@@ -0,0 +1,52 @@
+/**
+ * 
+ */
+package setvis;
+
+import java.awt.geom.Point2D;
+
+/**
+ * An outline together with whether it is only an approximation.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+public final class OutlineResult {
+
+  /** The vertices of the outline. */
+  private final Point2D[] points;
+
+  /** Whether the calculation was cut short. */
+  private final boolean degraded;
+
+  /**
+   * Creates a result.
+   * 
+   * @param points The vertices of the outline.
+   * @param degraded Whether the calculation was cut short.
+   */
+  public OutlineResult(final Point2D[] points, final boolean degraded) {
+    if(points == null) throw new NullPointerException("points");
+    this.points = points;
+    this.degraded = degraded;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The vertices of the outline.
+   */
+  public Point2D[] getPoints() {
+    return points;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return Whether the calculation was cut short. The outline may then leave
+   *         out members or include non-members.
+   */
+  public boolean isDegraded() {
+    return degraded;
+  }
+
+}
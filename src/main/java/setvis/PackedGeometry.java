@@ -0,0 +1,149 @@
+/**
+ * 
+ */
+package setvis;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Converts between packed <code>double</code> arrays and geometry objects.
+ * The layout of the arrays is described in {@link PackedSetOutline}.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+public final class PackedGeometry {
+
+  private PackedGeometry() {
+    // no constructor
+  }
+
+  /**
+   * Creates an outline with the object based methods of a {@link SetOutline}.
+   * This is how outlines that work on objects internally implement
+   * {@link PackedSetOutline}.
+   * 
+   * @param outline The outline.
+   * @param members The rectangles to include.
+   * @param memberCount The number of rectangles in {@code members}.
+   * @param nonMembers The rectangles to avoid.
+   * @param nonMemberCount The number of rectangles in {@code nonMembers}.
+   * @param lines The lines guiding the outline creation. May be
+   *          <code>null</code>.
+   * @param lineCount The number of lines in {@code lines}.
+   * @param out The array receiving the vertices of the outline.
+   * @return The number of vertices of the outline.
+   * @see PackedSetOutline#createOutline(double[], int, double[], int,
+   *      double[], int, double[])
+   */
+  public static int createOutline(final SetOutline outline,
+      final double[] members, final int memberCount,
+      final double[] nonMembers, final int nonMemberCount,
+      final double[] lines, final int lineCount, final double[] out) {
+    return writePoints(outline.createOutline(toRects(members, memberCount),
+        toRects(nonMembers, nonMemberCount), toLines(lines, lineCount)), out);
+  }
+
+  /**
+   * Unpacks rectangles.
+   * 
+   * @param coords The packed rectangles.
+   * @param count The number of rectangles.
+   * @return The rectangles.
+   */
+  public static Rectangle2D[] toRects(final double[] coords, final int count) {
+    check(coords, count, 4);
+    final Rectangle2D[] res = new Rectangle2D[count];
+    for(int i = 0, pos = 0; i < count; ++i, pos += 4) {
+      res[i] = new Rectangle2D.Double(coords[pos], coords[pos + 1],
+          coords[pos + 2], coords[pos + 3]);
+    }
+    return res;
+  }
+
+  /**
+   * Unpacks lines.
+   * 
+   * @param coords The packed lines. May be <code>null</code>.
+   * @param count The number of lines.
+   * @return The lines or <code>null</code> if {@code coords} is
+   *         <code>null</code>.
+   */
+  public static Line2D[] toLines(final double[] coords, final int count) {
+    if(coords == null) return null;
+    check(coords, count, 4);
+    final Line2D[] res = new Line2D[count];
+    for(int i = 0, pos = 0; i < count; ++i, pos += 4) {
+      res[i] = new Line2D.Double(coords[pos], coords[pos + 1],
+          coords[pos + 2], coords[pos + 3]);
+    }
+    return res;
+  }
+
+  /**
+   * Packs rectangles.
+   * 
+   * @param rects The rectangles.
+   * @return The packed rectangles.
+   */
+  public static double[] fromRects(final Rectangle2D[] rects) {
+    final double[] res = new double[rects.length * 4];
+    for(int i = 0, pos = 0; i < rects.length; ++i, pos += 4) {
+      final Rectangle2D r = rects[i];
+      res[pos] = r.getX();
+      res[pos + 1] = r.getY();
+      res[pos + 2] = r.getWidth();
+      res[pos + 3] = r.getHeight();
+    }
+    return res;
+  }
+
+  /**
+   * Writes vertices into a packed array. Vertices that do not fit are left
+   * out.
+   * 
+   * @param points The vertices.
+   * @param out The array receiving the vertices.
+   * @return The number of vertices.
+   */
+  public static int writePoints(final Point2D[] points, final double[] out) {
+    final int fit = Math.min(points.length, out.length / 2);
+    for(int i = 0, pos = 0; i < fit; ++i, pos += 2) {
+      out[pos] = points[i].getX();
+      out[pos + 1] = points[i].getY();
+    }
+    return points.length;
+  }
+
+  /**
+   * Unpacks vertices.
+   * 
+   * @param coords The packed vertices.
+   * @param count The number of vertices.
+   * @return The vertices.
+   */
+  public static Point2D[] toPoints(final double[] coords, final int count) {
+    check(coords, count, 2);
+    final Point2D[] res = new Point2D[count];
+    for(int i = 0, pos = 0; i < count; ++i, pos += 2) {
+      res[i] = new Point2D.Double(coords[pos], coords[pos + 1]);
+    }
+    return res;
+  }
+
+  /**
+   * Checks whether an array holds enough values.
+   * 
+   * @param coords The array.
+   * @param count The number of items.
+   * @param size The number of values per item.
+   */
+  private static void check(final double[] coords, final int count,
+      final int size) {
+    if(count < 0) throw new IllegalArgumentException("count: " + count);
+    if(coords.length / size < count) throw new IllegalArgumentException(
+        "array too short for " + count + " items: " + coords.length);
+  }
+
+}
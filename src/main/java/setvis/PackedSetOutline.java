@@ -0,0 +1,39 @@
+/**
+ * 
+ */
+package setvis;
+
+/**
+ * A {@link SetOutline} that reads and writes geometry as packed
+ * <code>double</code> arrays. Rectangles are stored as
+ * <code>x, y, width, height</code>, lines as <code>x1, y1, x2, y2</code>, and
+ * vertices as <code>x, y</code>. This way callers that keep their geometry in
+ * arrays do not need to create an object per item.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ * @see PackedGeometry
+ */
+public interface PackedSetOutline extends SetOutline {
+
+  /**
+   * Creates an outline for the set of packed rectangles given by
+   * {@code members} avoiding the packed rectangles of {@code nonMembers} and
+   * guided by the packed lines of {@code lines}. If {@code out} is too small
+   * only the vertices that fit are written. The returned number of vertices is
+   * the same in both cases, so the call can be repeated with a large enough
+   * array.
+   * 
+   * @param members The rectangles to include.
+   * @param memberCount The number of rectangles in {@code members}.
+   * @param nonMembers The rectangles to avoid.
+   * @param nonMemberCount The number of rectangles in {@code nonMembers}.
+   * @param lines The lines guiding the outline creation. The implementation is
+   *          free to ignore them. <code>null</code> values are permitted.
+   * @param lineCount The number of lines in {@code lines}.
+   * @param out The array receiving the vertices of the outline.
+   * @return The number of vertices of the outline.
+   */
+  int createOutline(double[] members, int memberCount, double[] nonMembers,
+      int nonMemberCount, double[] lines, int lineCount, double[] out);
+
+}
@@ -0,0 +1,66 @@
+/**
+ * 
+ */
+package setvis;
+
+import java.awt.geom.Path2D;
+
+/**
+ * A {@link PathSink} that appends the segments to a {@link Path2D}. By default
+ * the segments are stored in a new {@link Path2D.Float}.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+public final class Path2DSink implements PathSink {
+
+  /** The path receiving the segments. */
+  private final Path2D path;
+
+  /**
+   * Creates a sink for a new {@link Path2D.Float}.
+   */
+  public Path2DSink() {
+    this(new Path2D.Float());
+  }
+
+  /**
+   * Creates a sink for the given path.
+   * 
+   * @param path The path receiving the segments.
+   */
+  public Path2DSink(final Path2D path) {
+    if(path == null) throw new NullPointerException("path");
+    this.path = path;
+  }
+
+  @Override
+  public void moveTo(final double x, final double y) {
+    path.moveTo(x, y);
+  }
+
+  @Override
+  public void lineTo(final double x, final double y) {
+    path.lineTo(x, y);
+  }
+
+  @Override
+  public void curveTo(final double x1, final double y1, final double x2,
+      final double y2, final double x3, final double y3) {
+    path.curveTo(x1, y1, x2, y2, x3, y3);
+  }
+
+  @Override
+  public void closePath() {
+    path.closePath();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The path receiving the segments.
+   */
+  public Path2D getPath() {
+    return path;
+  }
+
+}
@@ -0,0 +1,54 @@
+/**
+ * 
+ */
+package setvis;
+
+import java.awt.geom.Path2D;
+
+/**
+ * Receives the segments of a path. Shape generators write their outlines into
+ * a sink, so the path can be stored in any form, e.g., as a {@link Path2D}
+ * with a {@link Path2DSink} or as path data of another format, without
+ * creating intermediate objects. The segments follow the rules of
+ * {@link Path2D}, i.e., every sub-path starts with {@link #moveTo(double,
+ * double)}.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+public interface PathSink {
+
+  /**
+   * Starts a new sub-path.
+   * 
+   * @param x The x coordinate of the first point.
+   * @param y The y coordinate of the first point.
+   */
+  void moveTo(double x, double y);
+
+  /**
+   * Adds a straight line to the current sub-path.
+   * 
+   * @param x The x coordinate of the end point.
+   * @param y The y coordinate of the end point.
+   */
+  void lineTo(double x, double y);
+
+  /**
+   * Adds a cubic bezier curve to the current sub-path.
+   * 
+   * @param x1 The x coordinate of the first control point.
+   * @param y1 The y coordinate of the first control point.
+   * @param x2 The x coordinate of the second control point.
+   * @param y2 The y coordinate of the second control point.
+   * @param x3 The x coordinate of the end point.
+   * @param y3 The y coordinate of the end point.
+   */
+  void curveTo(double x1, double y1, double x2, double y2, double x3,
+      double y3);
+
+  /**
+   * Closes the current sub-path.
+   */
+  void closePath();
+
+}
@@ -0,0 +1,283 @@
+/**
+ * 
+ */
+package setvis;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A spatial index over all rectangles of a scene. The rectangles are stored in
+ * a uniform grid so that the non-members of a group close to a given region
+ * can be found without looking at the whole scene. The index is built once
+ * for a batch of outline calculations and can be queried by multiple threads
+ * at the same time. Later changes to the rectangles are not reflected.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+public final class SceneIndex {
+
+  /** The maximal number of grid cells per rectangle. */
+  private static final int CELLS_PER_RECT = 4;
+
+  /** The rectangles in scene order, i.e. group by group. */
+  private final Rectangle2D[] rects;
+
+  /** The group of each rectangle. */
+  private final int[] groups;
+
+  /** The index of the first rectangle of each group. */
+  private final int[] groupStart;
+
+  /**
+   * The bounds of the rectangles. Each rectangle takes four slots: min x, min
+   * y, max x, and max y.
+   */
+  private final double[] bounds;
+
+  /** The minimal x coordinate of the grid. */
+  private final double gridX;
+
+  /** The minimal y coordinate of the grid. */
+  private final double gridY;
+
+  /** The size of a grid cell. */
+  private final double cellSize;
+
+  /** The number of columns of the grid. */
+  private final int cols;
+
+  /** The number of rows of the grid. */
+  private final int rows;
+
+  /**
+   * The index of the first entry of each cell in {@link #cellRects}. The
+   * entries of cell <code>i</code> range from <code>cellStart[i]</code> to
+   * <code>cellStart[i + 1]</code>.
+   */
+  private final int[] cellStart;
+
+  /** The rectangles of each cell in ascending order. */
+  private final int[] cellRects;
+
+  /**
+   * Creates an index for the given groups.
+   * 
+   * @param groups The rectangles of each group.
+   */
+  public SceneIndex(final Rectangle2D[][] groups) {
+    groupStart = new int[groups.length + 1];
+    int count = 0;
+    for(int g = 0; g < groups.length; ++g) {
+      groupStart[g] = count;
+      count += groups[g].length;
+    }
+    groupStart[groups.length] = count;
+    rects = new Rectangle2D[count];
+    this.groups = new int[count];
+    bounds = new double[count * 4];
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    double sizeSum = 0;
+    int pos = 0;
+    for(int g = 0; g < groups.length; ++g) {
+      for(final Rectangle2D r : groups[g]) {
+        rects[pos] = r;
+        this.groups[pos] = g;
+        final int b = pos * 4;
+        bounds[b] = r.getMinX();
+        bounds[b + 1] = r.getMinY();
+        bounds[b + 2] = r.getMaxX();
+        bounds[b + 3] = r.getMaxY();
+        minX = Math.min(minX, bounds[b]);
+        minY = Math.min(minY, bounds[b + 1]);
+        maxX = Math.max(maxX, bounds[b + 2]);
+        maxY = Math.max(maxY, bounds[b + 3]);
+        sizeSum += Math.max(r.getWidth(), r.getHeight());
+        ++pos;
+      }
+    }
+    if(count == 0) {
+      gridX = 0;
+      gridY = 0;
+      cellSize = 1;
+      cols = 1;
+      rows = 1;
+    } else {
+      gridX = minX;
+      gridY = minY;
+      final double w = maxX - minX;
+      final double h = maxY - minY;
+      // cells about the size of an average rectangle but not too many
+      double size = Math.max(sizeSum / count, Math.sqrt(w * h
+          / (CELLS_PER_RECT * (double) count)));
+      if(!(size > 0)) {
+        size = Math.max(Math.max(w, h), 1);
+      }
+      cellSize = size;
+      cols = Math.max(1, (int) Math.ceil(w / size));
+      rows = Math.max(1, (int) Math.ceil(h / size));
+    }
+    cellStart = new int[cols * rows + 1];
+    for(int i = 0; i < count; ++i) {
+      final int b = i * 4;
+      final int x0 = col(bounds[b]);
+      final int x1 = col(bounds[b + 2]);
+      final int y0 = row(bounds[b + 1]);
+      final int y1 = row(bounds[b + 3]);
+      for(int y = y0; y <= y1; ++y) {
+        for(int x = x0; x <= x1; ++x) {
+          ++cellStart[y * cols + x + 1];
+        }
+      }
+    }
+    for(int c = 0; c < cols * rows; ++c) {
+      cellStart[c + 1] += cellStart[c];
+    }
+    cellRects = new int[cellStart[cols * rows]];
+    final int[] fill = Arrays.copyOf(cellStart, cols * rows);
+    for(int i = 0; i < count; ++i) {
+      final int b = i * 4;
+      final int x0 = col(bounds[b]);
+      final int x1 = col(bounds[b + 2]);
+      final int y0 = row(bounds[b + 1]);
+      final int y1 = row(bounds[b + 3]);
+      for(int y = y0; y <= y1; ++y) {
+        for(int x = x0; x <= x1; ++x) {
+          cellRects[fill[y * cols + x]++] = i;
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates an index for the given groups.
+   * 
+   * @param groups The groups.
+   */
+  public SceneIndex(final Collection<Group> groups) {
+    this(toArray(groups));
+  }
+
+  /**
+   * Extracts the rectangles of the groups.
+   * 
+   * @param groups The groups.
+   * @return The rectangles of each group.
+   */
+  private static Rectangle2D[][] toArray(final Collection<Group> groups) {
+    final Rectangle2D[][] res = new Rectangle2D[groups.size()][];
+    int i = 0;
+    for(final Group g : groups) {
+      res[i++] = g.rects;
+    }
+    return res;
+  }
+
+  /**
+   * The column of the given x coordinate clamped to the grid.
+   * 
+   * @param x The x coordinate.
+   * @return The column.
+   */
+  private int col(final double x) {
+    final double c = Math.floor((x - gridX) / cellSize);
+    if(!(c > 0)) return 0;
+    return c >= cols ? cols - 1 : (int) c;
+  }
+
+  /**
+   * The row of the given y coordinate clamped to the grid.
+   * 
+   * @param y The y coordinate.
+   * @return The row.
+   */
+  private int row(final double y) {
+    final double r = Math.floor((y - gridY) / cellSize);
+    if(!(r > 0)) return 0;
+    return r >= rows ? rows - 1 : (int) r;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of groups.
+   */
+  public int getGroupCount() {
+    return groupStart.length - 1;
+  }
+
+  /**
+   * Finds all rectangles not belonging to the given group. The rectangles are
+   * in scene order.
+   * 
+   * @param group The group.
+   * @return All rectangles not belonging to the group.
+   */
+  public Rectangle2D[] getNonMembers(final int group) {
+    final int start = groupStart[group];
+    final int end = groupStart[group + 1];
+    final Rectangle2D[] res = new Rectangle2D[rects.length - (end - start)];
+    System.arraycopy(rects, 0, res, 0, start);
+    System.arraycopy(rects, end, res, start, rects.length - end);
+    return res;
+  }
+
+  /**
+   * Finds all rectangles not belonging to the given group that touch the given
+   * region. The rectangles are in scene order, i.e. the result is the same as
+   * {@link #getNonMembers(int)} without the rectangles outside of the region.
+   * 
+   * @param group The group.
+   * @param region The region.
+   * @return The rectangles not belonging to the group touching the region.
+   */
+  public Rectangle2D[] getNonMembers(final int group, final Rectangle2D region) {
+    final double minX = region.getMinX();
+    final double minY = region.getMinY();
+    final double maxX = region.getMaxX();
+    final double maxY = region.getMaxY();
+    final int x0 = col(minX);
+    final int x1 = col(maxX);
+    final int y0 = row(minY);
+    final int y1 = row(maxY);
+    int[] found = new int[16];
+    int count = 0;
+    for(int y = y0; y <= y1; ++y) {
+      for(int x = x0; x <= x1; ++x) {
+        final int c = y * cols + x;
+        for(int e = cellStart[c]; e < cellStart[c + 1]; ++e) {
+          final int i = cellRects[e];
+          if(groups[i] == group) {
+            continue;
+          }
+          final int b = i * 4;
+          // report a rectangle only in the first cell it shares with the
+          // region
+          if(Math.max(col(bounds[b]), x0) != x
+              || Math.max(row(bounds[b + 1]), y0) != y) {
+            continue;
+          }
+          if(bounds[b + 2] < minX || bounds[b] > maxX || bounds[b + 3] < minY
+              || bounds[b + 1] > maxY) {
+            continue;
+          }
+          if(count == found.length) {
+            found = Arrays.copyOf(found, count * 2);
+          }
+          found[count++] = i;
+        }
+      }
+    }
+    Arrays.sort(found, 0, count);
+    final Rectangle2D[] res = new Rectangle2D[count];
+    for(int i = 0; i < count; ++i) {
+      res[i] = rects[found[i]];
+    }
+    return res;
+  }
+
+}
@@ -5,7 +5,9 @@ import java.awt.geom.Point2D;
 
 /**
  * Provides some vector helper functions. The words point and vector are used
- * interchangeable.
+ * interchangeable. Most operations have a variant that writes the result into
+ * a point given by the caller instead of creating a new one. The output point
+ * may be one of the inputs.
  * 
  * @author Joschi <josua.krause@googlemail.com>
  */
@@ -53,6 +55,20 @@ public final class VecUtil {
     return new Point2D.Double(a.getX() + b.getX(), a.getY() + b.getY());
   }
 
+  /**
+   * Adds two points.
+   * 
+   * @param a The first point.
+   * @param b The second point.
+   * @param out The point receiving the result.
+   * @return {@code out}.
+   */
+  public static Point2D addVec(final Point2D a, final Point2D b,
+      final Point2D out) {
+    out.setLocation(a.getX() + b.getX(), a.getY() + b.getY());
+    return out;
+  }
+
   /**
    * Multiplies a point with a scalar.
    * 
@@ -64,6 +80,20 @@ public final class VecUtil {
     return new Point2D.Double(a.getX() * scalar, a.getY() * scalar);
   }
 
+  /**
+   * Multiplies a point with a scalar.
+   * 
+   * @param a The point.
+   * @param scalar The scalar.
+   * @param out The point receiving the result.
+   * @return {@code out}.
+   */
+  public static Point2D mulVec(final Point2D a, final double scalar,
+      final Point2D out) {
+    out.setLocation(a.getX() * scalar, a.getY() * scalar);
+    return out;
+  }
+
   /**
    * Subtracts {@code b} from {@code a}.
    * 
@@ -75,6 +105,20 @@ public final class VecUtil {
     return new Point2D.Double(a.getX() - b.getX(), a.getY() - b.getY());
   }
 
+  /**
+   * Subtracts {@code b} from {@code a}.
+   * 
+   * @param a The minuend.
+   * @param b The subtrahend.
+   * @param out The point receiving the difference.
+   * @return {@code out}.
+   */
+  public static Point2D subVec(final Point2D a, final Point2D b,
+      final Point2D out) {
+    out.setLocation(a.getX() - b.getX(), a.getY() - b.getY());
+    return out;
+  }
+
   /**
    * Calculates the dot product of two vectors.
    * 
@@ -151,6 +195,17 @@ public final class VecUtil {
     return mulVec(v, 1.0 / vecLength(v));
   }
 
+  /**
+   * Normalizes a vector, such that its length is {@code 1.0}.
+   * 
+   * @param v The vector.
+   * @param out The point receiving the vector with the length {@code 1.0}.
+   * @return {@code out}.
+   */
+  public static Point2D normVec(final Point2D v, final Point2D out) {
+    return mulVec(v, 1.0 / vecLength(v), out);
+  }
+
   /**
    * Calculates the squared length of a vector. This method is much cheaper than
    * {@link #vecLength(Point2D)}.
@@ -178,6 +233,28 @@ public final class VecUtil {
         mulVec(normVec(middleVec(subVec(a, from), subVec(b, from))), len), from);
   }
 
+  /**
+   * Calculates the vector that lies between the given vectors {@code from - a}
+   * and {@code from b} with the given length.
+   * 
+   * @param from The starting point of both vectors.
+   * @param a The first end point.
+   * @param b The second end point.
+   * @param len The length of the result.
+   * @param out The point receiving the vector in the middle of the two.
+   * @return {@code out}.
+   */
+  public static Point2D middleVec(final Point2D from, final Point2D a,
+      final Point2D b, final double len, final Point2D out) {
+    final double fx = from.getX();
+    final double fy = from.getY();
+    final double mx = ((a.getX() - fx) + (b.getX() - fx)) * 0.5;
+    final double my = ((a.getY() - fy) + (b.getY() - fy)) * 0.5;
+    final double s = 1.0 / Math.sqrt(mx * mx + my * my);
+    out.setLocation(mx * s * len + fx, my * s * len + fy);
+    return out;
+  }
+
   /**
    * Calculates the vector that lies between the given vectors {@code from - a}
    * and {@code from b}.
@@ -192,6 +269,25 @@ public final class VecUtil {
     return addVec(middleVec(subVec(a, from), subVec(b, from)), from);
   }
 
+  /**
+   * Calculates the vector that lies between the given vectors {@code from - a}
+   * and {@code from b}.
+   * 
+   * @param from The starting point of both vectors.
+   * @param a The first end point.
+   * @param b The second end point.
+   * @param out The point receiving the vector in the middle of the two.
+   * @return {@code out}.
+   */
+  public static Point2D middleVec(final Point2D from, final Point2D a,
+      final Point2D b, final Point2D out) {
+    final double fx = from.getX();
+    final double fy = from.getY();
+    out.setLocation(((a.getX() - fx) + (b.getX() - fx)) * 0.5 + fx,
+        ((a.getY() - fy) + (b.getY() - fy)) * 0.5 + fy);
+    return out;
+  }
+
   /**
    * Calculates the vector in the middle of the two given vectors.
    * 
@@ -213,8 +309,8 @@ public final class VecUtil {
    */
   public static double distPointLineSqr(final Point2D start, final Point2D end,
       final Point2D p) {
-    final Line2D line = new Line2D.Double(start, end);
-    return line.ptSegDistSq(p);
+    return Line2D.ptSegDistSq(start.getX(), start.getY(), end.getX(),
+        end.getY(), p.getX(), p.getY());
   }
 
   /**
@@ -1,7 +1,6 @@
 package setvis.bubbleset;
 
-import java.awt.Color;
-import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.Area;
 import java.awt.geom.Line2D;
 import java.awt.geom.Path2D;
@@ -14,9 +13,17 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.Iterator;
-
-import setvis.SetOutline;
+import java.util.concurrent.CancellationException;
+
+import setvis.AnytimeSetOutline;
+import setvis.ClippableSetOutline;
+import setvis.ConfigurableSetOutline;
+import setvis.LocalSetOutline;
+import setvis.OutlineResult;
+import setvis.PackedGeometry;
+import setvis.PackedSetOutline;
 import setvis.bubbleset.Intersection.State;
+import setvis.ch.ConvexHull;
 
 /**
  * Generates isocontour set outlines. The website of the bubble sets: <a
@@ -25,7 +32,8 @@ import setvis.bubbleset.Intersection.State;
  * 
  * @author Christopher Collins
  */
-public class BubbleSet implements SetOutline {
+public class BubbleSet implements LocalSetOutline, ConfigurableSetOutline,
+    AnytimeSetOutline, PackedSetOutline, ClippableSetOutline {
 
   class Item implements Comparable<Item> {
     Rectangle2D rectangle;
@@ -67,87 +75,47 @@ public class BubbleSet implements SetOutline {
     }
   }
 
-  /** The default value for {@link #maxRoutingIterations}. */
+  /** The default maximum number of routing iterations. */
   public static final int DEFAULT_MAX_ROUTING_ITERATIONS = 100;
 
-  /** The maximum number of passes through all nodes to attempt edge rerouting. */
-  private int maxRoutingIterations = DEFAULT_MAX_ROUTING_ITERATIONS;
-
-  /** The default value for {@link #maxMarchingIterations}. */
+  /** The default maximum number of marching iterations. */
   public static final int DEFAULT_MAX_MARCHING_ITERATIONS = 20;
 
-  /**
-   * The maximum number of passes of marching squares while trying to ensure
-   * connectedness.
-   */
-  private int maxMarchingIterations = DEFAULT_MAX_MARCHING_ITERATIONS;
-
-  /** The default value for {@link #pixelGroup}. */
+  /** The default value for {@link BubbleSetConfiguration#getPixelGroup()}. */
   public static final int DEFAULT_PIXEL_GROUP = 4;
 
-  /**
-   * The size of square super pixels used for calculations (larger results in
-   * lower resolution contours and faster calculations).
-   */
-  private int pixelGroup = DEFAULT_PIXEL_GROUP;
-
-  /** The default value for {@link #edgeR0}. */
+  /** The default value for {@link BubbleSetConfiguration#getEdgeR0()}. */
   public static final double DEFAULT_EDGE_R0 = 10;
 
-  /**
-   * The radius for the contour around a virtual edge -- the point at which the
-   * energy is 1.
-   */
-  private double edgeR0 = DEFAULT_EDGE_R0;
-
-  /** The default value for {@link #edgeR1}. */
+  /** The default value for {@link BubbleSetConfiguration#getEdgeR1()}. */
   public static final double DEFAULT_EDGE_R1 = 20;
 
-  /**
-   * The radius at which potential reaches zero -- the extent of energy
-   * contribution by the virtual edge.
-   */
-  private double edgeR1 = DEFAULT_EDGE_R1;
-
-  /** The default value for {@link #nodeR0}. */
+  /** The default value for {@link BubbleSetConfiguration#getNodeR0()}. */
   public static final double DEFAULT_NODE_R0 = 15;
 
-  /**
-   * the radius for the contour around a single node -- the point at which the
-   * energy is 1.
-   */
-  private double nodeR0 = DEFAULT_NODE_R0;
-
-  /** The default value for {@link #nodeR1}. */
+  /** The default value for {@link BubbleSetConfiguration#getNodeR1()}. */
   public static final double DEFAULT_NODE_R1 = 50;
 
-  /**
-   * The radius at which potential reaches zero -- the extent of energy
-   * contribution by the node.
-   */
-  private double nodeR1 = DEFAULT_NODE_R1;
-
-  /** The default value for {@link #morphBuffer}. */
+  /** The default value for {@link BubbleSetConfiguration#getMorphBuffer()}. */
   public static final double DEFAULT_MORPH_BUFFER = DEFAULT_NODE_R0;
 
-  /**
-   * The distance to route edges around a node.
-   */
-  private double morphBuffer = DEFAULT_MORPH_BUFFER;
-
-  /** The default value for {@link #skip}. */
+  /** The default value for {@link BubbleSetConfiguration#getSkip()}. */
   public static final int DEFAULT_SKIP = 8;
 
+  /** The default value for {@link #routeCache}'s capacity. */
+  public static final int DEFAULT_ROUTE_CACHE_SIZE = 1024;
+
   /**
-   * Number of points to skip in the marching squares when making the contour.
-   * Larger numbers create smoother, but less precise curves.
+   * The current parameters. A calculation uses the configuration that was
+   * present when it started.
    */
-  private int skip = DEFAULT_SKIP;
+  private volatile BubbleSetConfiguration configuration;
 
   /**
-   * Whether to use optimized data structures.
+   * The routes of virtual edges from earlier calls.
    */
-  private boolean useOptimizedDataStructures = true;
+  private final RouteCache routeCache = new RouteCache(
+      DEFAULT_ROUTE_CACHE_SIZE);
 
   /**
    * Create a new BubbleSet calculation instance with the given parameters.
@@ -177,109 +145,481 @@ public class BubbleSet implements SetOutline {
       final int pixelGroup, final double edgeR0, final double edgeR1,
       final double nodeR0, final double nodeR1, final double morphBuffer,
       final int skip) {
-    maxRoutingIterations = routingIterations;
-    maxMarchingIterations = marchingIterations;
-    this.pixelGroup = pixelGroup;
-    this.edgeR0 = edgeR0;
-    this.edgeR1 = edgeR1;
-    this.nodeR0 = nodeR0;
-    this.nodeR1 = nodeR1;
-    this.morphBuffer = morphBuffer;
-    this.skip = skip;
+    this(new BubbleSetConfiguration(routingIterations, marchingIterations,
+        pixelGroup, edgeR0, edgeR1, nodeR0, nodeR1, morphBuffer, skip));
+  }
+
+  /**
+   * Create a new BubbleSet calculation instance with the given parameters.
+   * 
+   * @param configuration the parameters
+   */
+  public BubbleSet(final BubbleSetConfiguration configuration) {
+    if(configuration == null) throw new NullPointerException("configuration");
+    this.configuration = configuration;
   }
 
   /**
    * Create a new BubbleSet calculation instance with default parameters.
    */
   public BubbleSet() {
-    // use default paramters
+    this(new BubbleSetConfiguration());
+  }
+
+  /**
+   * Test point equality within a threshold.
+   * 
+   * @param p1 the first point
+   * @param p2 the second point
+   * @param delta the threshold distance
+   * @return true if and only if the distance between p1 and p2 is less than
+   *         delta
+   */
+  public static boolean doublePointsEqual(final Point2D p1, final Point2D p2,
+      final double delta) {
+    return p1.distance(p2) < delta;
   }
 
-  // FIELDS BELOW ARE USED BY THE ALGORITHM AND GENERALLY SHOULD NOT BE
-  // CHANGED (HENCE NO GET/SET)
+  @Override
+  public Point2D[] createOutline(final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers) {
+    return createOutline(members, nonMembers, null);
+  }
 
   /**
-   * The energy threshold for marching squares.
+   * Non-members only contribute energy when they touch the active region,
+   * which extends beyond the members by the largest influence radius plus the
+   * morph buffer. Virtual edges that are routed around a non-member reaching
+   * far outside of the members can widen the active region further. This case
+   * is not covered by the margin.
    */
-  private double threshold = 1;
+  @Override
+  public double getNonMemberMargin() {
+    final BubbleSetConfiguration cfg = configuration;
+    // one extra pixel for rounding the non-members to integer bounds
+    return Math.max(cfg.getEdgeR1(), cfg.getNodeR1()) + cfg.getMorphBuffer()
+        + 1;
+  }
 
   /**
-   * The default energy contribution for rectangles in the set.
+   * Calculate the Bubble Set using energy and marching squares with edge
+   * routing.
    */
-  private double nodeInfluenceFactor = 1;
+  @Override
+  public Point2D[] createOutline(final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers, final Line2D[] edges) {
+    return createOutline(members, nonMembers, edges, null);
+  }
 
   /**
-   * The default energy contribution for virtual edges in the set.
+   * The items are converted to objects once since the calculation works on
+   * objects internally.
    */
-  private double edgeInfluenceFactor = 1;
+  @Override
+  public int createOutline(final double[] members, final int memberCount,
+      final double[] nonMembers, final int nonMemberCount,
+      final double[] lines, final int lineCount, final double[] out) {
+    return PackedGeometry.createOutline(this, members, memberCount,
+        nonMembers, nonMemberCount, lines, lineCount, out);
+  }
 
   /**
-   * The default energy contribution for rectangles not in the set.
+   * Calculate the Bubble Set starting with the energy threshold and influence
+   * factors the previous calculation of the same set ended with. This avoids
+   * repeating the same adjustments for every frame of an animation. The result
+   * may differ from the one of
+   * {@link #createOutline(Rectangle2D[], Rectangle2D[], Line2D[])}.
+   * 
+   * @param members The rectangles to include.
+   * @param nonMembers The rectangles to avoid.
+   * @param edges The lines guiding the outline creation. <code>null</code>
+   *          values are permitted.
+   * @param warmStart The state of the previous calculation of this set. It is
+   *          updated with the values of this calculation.
+   * @return The vertices of the outline.
    */
-  private double negativeNodeInfluenceFactor = -0.8;
+  public Point2D[] createOutline(final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers, final Line2D[] edges,
+      final WarmStart warmStart) {
+    return createOutlineResult(members, nonMembers, edges, warmStart)
+        .getPoints();
+  }
 
   /**
-   * The array of energy values calculated over the active area.
+   * Calculate the Bubble Set within the time budget of the configuration.
+   * When the time is up the last traced contour is returned. If there is none
+   * yet the convex hull of the members is returned instead. Both results are
+   * marked as degraded. The budget is checked between the passes of the
+   * calculation, so it can be exceeded by the duration of one pass.
    */
-  private double[][] potentialArea;
+  @Override
+  public OutlineResult createOutlineResult(final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers, final Line2D[] edges) {
+    return createOutlineResult(members, nonMembers, edges, null);
+  }
 
   /**
-   * The bounds which contain all set members + a buffer, in screen coordinates.
-   * This bounding box is guaranteed to contain the bubble set.
+   * Calculate the Bubble Set within the time budget of the configuration
+   * starting with the values of the previous calculation of the same set.
+   * Degraded calculations do not change the warm start.
+   * 
+   * @param members The rectangles to include.
+   * @param nonMembers The rectangles to avoid.
+   * @param edges The lines guiding the outline creation. <code>null</code>
+   *          values are permitted.
+   * @param warmStart The state of the previous calculation of this set. May be
+   *          <code>null</code>.
+   * @return The outline.
+   * @see #createOutlineResult(Rectangle2D[], Rectangle2D[], Line2D[])
+   * @see #createOutline(Rectangle2D[], Rectangle2D[], Line2D[], WarmStart)
    */
-  private Rectangle2D activeRegion;
+  public OutlineResult createOutlineResult(final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers, final Line2D[] edges,
+      final WarmStart warmStart) {
+    return calculate(members, nonMembers, edges, warmStart, null);
+  }
 
-  Deque<Line2D> virtualEdges = new ArrayDeque<Line2D>();
+  /**
+   * The outline stays within the active region. Virtual edges that are routed
+   * around a non-member reaching far outside of the members can widen the
+   * active region further. This case is not covered by the margin.
+   */
+  @Override
+  public double getOutlineMargin() {
+    final BubbleSetConfiguration cfg = configuration;
+    return Math.max(cfg.getEdgeR1(), cfg.getNodeR1()) + cfg.getMorphBuffer();
+  }
 
   /**
-   * The energy threshold value used to calculate the most recent contour.
+   * Calculate the Bubble Set with an energy field that only covers the clip
+   * plus the influence radius. Virtual edges are still routed between all
+   * members, but only members within the clipped field need to be contained
+   * in the contour. Since the energy adjustments only consider those members,
+   * the visible part of the outline may differ slightly from the full one. If
+   * no contour can be found the whole outline is calculated instead.
    */
-  private double lastThreshold;
+  @Override
+  public Point2D[] createClippedOutline(final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers, final Line2D[] edges,
+      final Rectangle2D clip) {
+    if(clip == null) throw new NullPointerException("clip");
+    return calculate(members, nonMembers, edges, null, clip).getPoints();
+  }
 
   /**
-   * Test point equality within a threshold.
+   * Calculate the Bubble Set.
    * 
-   * @param p1 the first point
-   * @param p2 the second point
-   * @param delta the threshold distance
-   * @return true if and only if the distance between p1 and p2 is less than
-   *         delta
+   * @param members The rectangles to include.
+   * @param nonMembers The rectangles to avoid.
+   * @param edges The lines guiding the outline creation. <code>null</code>
+   *          values are permitted.
+   * @param warmStart The state of the previous calculation of this set. May be
+   *          <code>null</code>.
+   * @param clip The visible region or <code>null</code> if the whole outline
+   *          is needed.
+   * @return The outline.
    */
-  public static boolean doublePointsEqual(final Point2D p1, final Point2D p2,
-      final double delta) {
-    return p1.distance(p2) < delta;
+  private OutlineResult calculate(final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers, final Line2D[] edges,
+      final WarmStart warmStart, final Rectangle2D clip) {
+    if(members.length == 0) return new OutlineResult(new Point2D[0], false);
+    final BubbleSetConfiguration cfg = configuration;
+    if(cfg.useHullFastPath() && (edges == null || edges.length == 0)) {
+      final Point2D[] hull = createIsolatedOutline(cfg, members, nonMembers);
+      if(hull != null) return new OutlineResult(hull, false);
+    }
+    final OutlineArena arena = OutlineArena.acquire();
+    try {
+      return calculate(arena, members, nonMembers, edges, warmStart, clip);
+    } finally {
+      arena.release();
+    }
   }
 
-  @Override
-  public Point2D[] createOutline(final Rectangle2D[] members,
+  /**
+   * Calculate the Bubble Set with the given scratch buffers.
+   * 
+   * @param arena The scratch buffers.
+   * @param members The rectangles to include. Must not be empty.
+   * @param nonMembers The rectangles to avoid.
+   * @param edges The lines guiding the outline creation. <code>null</code>
+   *          values are permitted.
+   * @param warmStart The state of the previous calculation of this set. May be
+   *          <code>null</code>.
+   * @param clip The visible region or <code>null</code> if the whole outline
+   *          is needed.
+   * @return The outline.
+   */
+  private OutlineResult calculate(final OutlineArena arena,
+      final Rectangle2D[] members, final Rectangle2D[] nonMembers,
+      final Line2D[] edges, final WarmStart warmStart, final Rectangle2D clip) {
+    checkCancelled();
+
+    final OutlineContext ctx = new OutlineContext(configuration);
+    ctx.arena = arena;
+    ctx.startClock();
+    final boolean warm = warmStart != null && warmStart.apply(ctx);
+    final Item[] memberItems = prepare(ctx, members, nonMembers, edges);
+    checkCancelled();
+    // without all virtual edges the field would split the set
+    if(ctx.isExpired()) return createFallback(members, nonMembers);
+    Rectangle2D[] required = members;
+    if(clip != null) {
+      if(!clipActiveRegion(ctx, clip)) return new OutlineResult(
+          new Point2D[0], false);
+      required = getContained(members, ctx.activeRegion,
+          2 * ctx.configuration.getPixelGroup());
+    }
+    ctx.potentialArea = createPotentialArea(ctx);
+    final double[][] field = ctx.potentialArea;
+    if(clip != null) {
+      final int w = ctx.potentialArea.length;
+      final int h = w > 0 ? ctx.potentialArea[0].length : 0;
+      ctx.cells = new Rectangle(1, 1, Math.max(w - 2, 0), Math.max(h - 2, 0));
+    }
+
+    // add the aggregate and all it's members and virtual edges
+    final EnergySource source = createItemSource(memberItems, nonMembers);
+    addInitialEnergy(ctx, source);
+    checkCancelled();
+
+    final Point2D[] res =
+        traceOutline(ctx, source, required, nonMembers, false);
+    arena.returnField(field);
+    // the visible part of the set may be split by the clip
+    if(clip != null && !ctx.converged && !ctx.degraded) return calculate(
+        arena, members, nonMembers, edges, warmStart, null);
+    if(!ctx.degraded) {
+      // a warm start that is too fat is dropped and the outline recalculated
+      if(warmStart != null && warmStart.update(ctx, warm)) return calculate(
+          arena, members, nonMembers, edges, warmStart, clip);
+      return new OutlineResult(res, false);
+    }
+    if(res.length == 0) return createFallback(members, nonMembers);
+    return new OutlineResult(res, true);
+  }
+
+  /**
+   * Shrinks the active region to the clip plus the influence radius. The cells
+   * of the clipped energy field stay aligned with the cells of the full field.
+   * 
+   * @param ctx the context of the calculation
+   * @param clip the visible region
+   * @return whether the clipped active region is not empty
+   */
+  private static boolean clipActiveRegion(final OutlineContext ctx,
+      final Rectangle2D clip) {
+    final BubbleSetConfiguration cfg = ctx.configuration;
+    final int pixelGroup = cfg.getPixelGroup();
+    final double grow =
+        Math.max(cfg.getEdgeR1(), cfg.getNodeR1()) + cfg.getMorphBuffer();
+    final Rectangle2D region = ctx.activeRegion;
+    final double minX = region.getMinX() + Math.max(0, Math.floor(
+        (clip.getMinX() - grow - region.getMinX()) / pixelGroup)) * pixelGroup;
+    final double minY = region.getMinY() + Math.max(0, Math.floor(
+        (clip.getMinY() - grow - region.getMinY()) / pixelGroup)) * pixelGroup;
+    final double maxX = Math.min(region.getMaxX(), clip.getMaxX() + grow);
+    final double maxY = Math.min(region.getMaxY(), clip.getMaxY() + grow);
+    if(maxX <= minX || maxY <= minY) return false;
+    region.setRect(minX, minY, maxX - minX, maxY - minY);
+    return true;
+  }
+
+  /**
+   * Finds the rectangles that lie completely within a region. Members cut by
+   * the border of a clipped energy field can not be contained in its contour.
+   * 
+   * @param rects the rectangles
+   * @param region the region
+   * @param inset the distance the rectangles must keep from the border
+   * @return the rectangles within the region
+   */
+  private static Rectangle2D[] getContained(final Rectangle2D[] rects,
+      final Rectangle2D region, final double inset) {
+    final Rectangle2D inner = new Rectangle2D.Double(region.getX() + inset,
+        region.getY() + inset, region.getWidth() - 2 * inset,
+        region.getHeight() - 2 * inset);
+    final ArrayList<Rectangle2D> res = new ArrayList<Rectangle2D>();
+    for(final Rectangle2D r : rects) {
+      if(inner.contains(r)) {
+        res.add(r);
+      }
+    }
+    return res.toArray(new Rectangle2D[res.size()]);
+  }
+
+  /** The largest angle between two points of a rounded corner. */
+  private static final double MAX_ARC_STEP = Math.PI / 8;
+
+  /**
+   * Outlines a set by its rounded convex hull if no non-member is close enough
+   * to the members to change the energy field. Non-members only subtract
+   * energy where the members add energy, i.e., within the largest influence
+   * radius of the convex hull. Without non-members nearby the virtual edges are
+   * straight lines inside the hull and the outline is approximately the hull
+   * extended by the node radius.
+   * 
+   * @param cfg the parameters of the calculation
+   * @param members the items which should be inside the contour. Must not be
+   *          empty.
+   * @param nonMembers the items which should be outside the contour
+   * @return the rounded convex hull or <code>null</code> if the energy field
+   *         is needed
+   */
+  private static Point2D[] createIsolatedOutline(
+      final BubbleSetConfiguration cfg, final Rectangle2D[] members,
       final Rectangle2D[] nonMembers) {
-    return createOutline(members, nonMembers, null);
+    final Point2D[] hull = new ConvexHull().createOutline(members, nonMembers);
+    // one extra pixel for the corners of the padded hull being cut off
+    final double pad = Math.max(cfg.getEdgeR1(), cfg.getNodeR1()) + 1;
+    final Point2D[] padded = roundHull(hull, pad);
+    final Path2D area = new Path2D.Double();
+    area.moveTo(padded[0].getX(), padded[0].getY());
+    for(int i = 1; i < padded.length; ++i) {
+      area.lineTo(padded[i].getX(), padded[i].getY());
+    }
+    area.closePath();
+    final Rectangle2D bounds = area.getBounds2D();
+    for(final Rectangle2D r : nonMembers) {
+      if(r.intersects(bounds) && area.intersects(r)) return null;
+    }
+    return roundHull(hull, cfg.getNodeR0());
   }
 
   /**
-   * Calculate the Bubble Set using energy and marching squares with edge
-   * routing.
+   * Extends a convex polygon by the given radius. The corners are rounded.
+   * 
+   * @param hull the vertices of the convex polygon in either direction
+   * @param radius the distance to the polygon
+   * @return the extended polygon
    */
-  @Override
-  public Point2D[] createOutline(final Rectangle2D[] members,
-      final Rectangle2D[] nonMembers, final Line2D[] edges) {
+  private static Point2D[] roundHull(final Point2D[] hull,
+      final double radius) {
+    final int n = hull.length;
+    final ArrayList<Point2D> res = new ArrayList<Point2D>();
+    if(n == 1) {
+      addArc(res, hull[0], radius, 0, 2 * Math.PI);
+      return res.toArray(new Point2D[res.size()]);
+    }
+    double area = 0;
+    for(int i = 0; i < n; ++i) {
+      final Point2D a = hull[i];
+      final Point2D b = hull[(i + 1) % n];
+      area += a.getX() * b.getY() - b.getX() * a.getY();
+    }
+    // the outer side of an edge depends on the direction of the polygon
+    final double dir = area < 0 ? -1 : 1;
+    for(int i = 0; i < n; ++i) {
+      final Point2D prev = hull[(i + n - 1) % n];
+      final Point2D cur = hull[i];
+      final Point2D next = hull[(i + 1) % n];
+      final double from = Math.atan2(-dir * (cur.getX() - prev.getX()), dir
+          * (cur.getY() - prev.getY()));
+      final double to = Math.atan2(-dir * (next.getX() - cur.getX()), dir
+          * (next.getY() - cur.getY()));
+      double sweep = (to - from) * dir;
+      while(sweep < 0) {
+        sweep += 2 * Math.PI;
+      }
+      addArc(res, cur, radius, from, sweep * dir);
+    }
+    return res.toArray(new Point2D[res.size()]);
+  }
 
-    if(members.length == 0) return new Point2D[0];
+  /**
+   * Adds the points of an arc.
+   * 
+   * @param res the list to add the points to
+   * @param center the center of the arc
+   * @param radius the radius of the arc
+   * @param from the start angle
+   * @param sweep the signed angle of the arc
+   */
+  private static void addArc(final ArrayList<Point2D> res,
+      final Point2D center, final double radius, final double from,
+      final double sweep) {
+    final int steps = (int) Math.ceil(Math.abs(sweep) / MAX_ARC_STEP);
+    for(int k = 0; k <= steps; ++k) {
+      final double a = steps == 0 ? from : from + sweep * k / steps;
+      res.add(new Point2D.Double(center.getX() + radius * Math.cos(a),
+          center.getY() + radius * Math.sin(a)));
+    }
+  }
 
-    final Item[] memberItems = new Item[members.length];
+  /**
+   * Creates the outline that is used when the time budget is used up before
+   * any contour has been traced.
+   * 
+   * @param members The rectangles to include.
+   * @param nonMembers The rectangles to avoid.
+   * @return The degraded convex hull of the members.
+   */
+  private static OutlineResult createFallback(final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers) {
+    return new OutlineResult(
+        new ConvexHull().createOutline(members, nonMembers), true);
+  }
+
+  /**
+   * Aborts the calculation if the current thread has been interrupted. This
+   * way a calculation that is no longer needed can be stopped by cancelling
+   * its {@link java.util.concurrent.Future}. The interrupted status of the
+   * thread is kept.
+   * 
+   * @throws CancellationException if the current thread is interrupted
+   */
+  static void checkCancelled() {
+    if(Thread.currentThread().isInterrupted()) throw new CancellationException(
+        "outline calculation interrupted");
+  }
+
+  /**
+   * Creates a session for incrementally updating the outline of one set.
+   * 
+   * @param members The rectangles to include.
+   * @param nonMembers The rectangles to avoid.
+   * @return The session.
+   */
+  public BubbleSetSession createSession(final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers) {
+    return new BubbleSetSession(this, members, nonMembers);
+  }
+
+  /**
+   * Calculates the virtual edges and the active region of a set.
+   * 
+   * @param ctx the context of the calculation
+   * @param members the items which should be inside the contour. Must not be
+   *          empty.
+   * @param nonMembers the items which should be outside the contour
+   * @param edges additional virtual edges. May be <code>null</code>.
+   * @return the members in the order they have been connected
+   */
+  Item[] prepare(final OutlineContext ctx, final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers, final Line2D[] edges) {
+    final BubbleSetConfiguration cfg = ctx.configuration;
+    final double edgeR1 = cfg.getEdgeR1();
+    final double nodeR1 = cfg.getNodeR1();
+    final double morphBuffer = cfg.getMorphBuffer();
+
+    final Item[] memberItems = ctx.arena != null ? ctx.arena
+        .borrowItems(members.length) : new Item[members.length];
     for(int i = 0; i < members.length; i++) {
-      memberItems[i] = new Item();
+      if(memberItems[i] == null) {
+        memberItems[i] = new Item();
+      }
       memberItems[i].rectangle = members[i];
     }
 
     // calculate and store virtual edges
-    calculateVirtualEdges(memberItems, nonMembers);
+    calculateVirtualEdges(ctx, memberItems, nonMembers);
 
     if(edges != null) {
-      virtualEdges.addAll(Arrays.asList(edges));
+      ctx.virtualEdges.addAll(Arrays.asList(edges));
     }
 
     // cycle through members of aggregate adding to bounds of influence
+    Rectangle2D activeRegion = null;
     for(int memberIndex = 0; memberIndex < members.length; memberIndex++) {
       if(activeRegion == null) {
         // clone because we don't want to change bounds of items, but we
@@ -293,7 +633,7 @@ public class BubbleSet implements SetOutline {
     }
 
     // add the bounds of the virtual edges to the active area
-    final Iterator<Line2D> lines = virtualEdges.iterator();
+    final Iterator<Line2D> lines = ctx.virtualEdges.iterator();
     while(lines.hasNext()) {
       activeRegion.add(lines.next().getBounds2D());
     }
@@ -307,102 +647,250 @@ public class BubbleSet implements SetOutline {
         + 2 * morphBuffer,
         activeRegion.getHeight() + 2 * Math.max(edgeR1, nodeR1) + 2
             * morphBuffer);
-    potentialArea =
-        new double[(int) (Math.ceil(activeRegion.getWidth() / pixelGroup))]
-        [(int) (Math.ceil(activeRegion.getHeight() / pixelGroup))];
-
-    // estimate length of contour to be the perimeter of the rectangular
-    // aggregate bounds (tested, it's a good approx)
-    final int estLength =
-        ((int) activeRegion.getWidth() + (int) activeRegion.getHeight()) * 2;
-    final ArrayList<Point2D> surface =
-        useOptimizedDataStructures ? new FastList<Point2D>(estLength)
-            : new ArrayList<Point2D>(estLength);
-
-    // store defaults and adjust globals so that changes are visible to
-    // calculateSurface method
-    final double tempThreshold = threshold;
-    final double tempNegativeNodeInfluenceFactor = negativeNodeInfluenceFactor;
-    final double tempNodeInfluenceFactor = nodeInfluenceFactor;
-    final double tempEdgeInfluenceFactor = edgeInfluenceFactor;
-
-    int iterations = 0;
-
-    // add the aggregate and all it's members and virtual edges
-    fillPotentialArea(activeRegion, memberItems, nonMembers, potentialArea);
+    ctx.activeRegion = activeRegion;
+    return memberItems;
+  }
 
-    // try to march, check if surface contains all items
-    while((!calculateContour(surface, activeRegion, members, nonMembers,
-        potentialArea)) && (iterations < maxMarchingIterations)) {
-      surface.clear();
-      iterations++;
-
-      // reduce negative influences first; this will allow the surface to
-      // pass without making it fatter all around (which raising the
-      // threshold does)
-      if(iterations <= maxMarchingIterations / 2) {
-        threshold *= 0.95f;
-        nodeInfluenceFactor *= 1.2;
-        edgeInfluenceFactor *= 1.2;
-        fillPotentialArea(activeRegion, memberItems, nonMembers, potentialArea);
-      }
+  /**
+   * Allocates the energy field for the active region.
+   * 
+   * @param ctx the context of the calculation
+   * @return the empty energy field
+   */
+  static double[][] createPotentialArea(final OutlineContext ctx) {
+    final Rectangle2D activeRegion = ctx.activeRegion;
+    final int pixelGroup = ctx.configuration.getPixelGroup();
+    final int w = (int) (Math.ceil(activeRegion.getWidth() / pixelGroup));
+    final int h = (int) (Math.ceil(activeRegion.getHeight() / pixelGroup));
+    if(ctx.arena != null) return ctx.arena.borrowField(w, h);
+    return new double[w][h];
+  }
 
-      // after half the iterations, start increasing positive energy and
-      // lowering the threshold
+  /**
+   * Traces the contour of the filled energy field. If the contour does not
+   * contain all members the field is adjusted and traced again. The field must
+   * have been filled exactly once with the factors of the context.
+   * 
+   * @param ctx the context of the calculation
+   * @param source the energy added by each adjustment
+   * @param members the items which should be inside the contour
+   * @param nonMembers the items which should be outside the contour
+   * @param keepField whether the energy field of the context must not be
+   *          modified. The adjustments are then made on a copy.
+   * @return the outline
+   */
+  static Point2D[] traceOutline(final OutlineContext ctx,
+      final EnergySource source, final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers, final boolean keepField) {
+    final BubbleSetConfiguration cfg = ctx.configuration;
+    final int maxMarchingIterations = cfg.getMaxMarchingIterations();
+    final Rectangle2D activeRegion = ctx.activeRegion;
+
+    final Contour surface =
+        ctx.arena != null ? ctx.arena.borrowContour() : new Contour();
+
+    // a warm started field already holds the sums of the earlier passes
+    final int firstPass = ctx.passes;
+    if(firstPass == 0) {
+      ctx.nodeInfluenceSum = ctx.nodeInfluenceFactor;
+      ctx.edgeInfluenceSum = ctx.edgeInfluenceFactor;
+      ctx.negativeNodeInfluenceSum = ctx.negativeNodeInfluenceFactor;
+    }
 
-      if(iterations > maxMarchingIterations / 2) {
-        if(negativeNodeInfluenceFactor != 0) {
-          threshold *= 0.95f;
-          negativeNodeInfluenceFactor *= 0.8;
-          fillPotentialArea(activeRegion, memberItems, nonMembers,
-              potentialArea);
+    // try to march, check if surface contains all items
+    while(!(ctx.converged = calculateContour(ctx, surface, members, nonMembers))
+        && (ctx.passes < maxMarchingIterations)) {
+      // keep the last contour when there is no time for another pass
+      if(ctx.isExpired()) break;
+      checkCancelled();
+      if(keepField && ctx.passes == firstPass) {
+        final double[][] copy = new double[ctx.potentialArea.length][];
+        for(int x = 0; x < copy.length; ++x) {
+          copy[x] = ctx.potentialArea[x].clone();
         }
+        ctx.potentialArea = copy;
+      }
+      if(nextPass(ctx)) {
+        source.addEnergy(ctx);
+        addInfluenceSums(ctx);
       }
     }
 
-    lastThreshold = threshold;
-    threshold = tempThreshold;
-    negativeNodeInfluenceFactor = tempNegativeNodeInfluenceFactor;
-    nodeInfluenceFactor = tempNodeInfluenceFactor;
-    edgeInfluenceFactor = tempEdgeInfluenceFactor;
-
     // start with global SKIP value, but decrease skip amount if there
     // aren't enough points in the surface
-    int thisSkip = skip;
+    final int thisSkip = reduceSkip(surface.size(), cfg.getSkip());
+    final int samples =
+        thisSkip > 1 ? surface.size() / thisSkip : surface.size();
+    final int selected =
+        select(surface, cfg.getContourTolerance(), samples);
     // prepare viz attribute array
-    int size = surface.size();
-
-    if(thisSkip > 1) {
-      size = surface.size() / thisSkip;
-      // if we reduced too much (fewer than three points in reduced
-      // surface) reduce skip and try again
-      while((size < 3) && (thisSkip > 1)) {
-        thisSkip--;
-        size = surface.size() / thisSkip;
-      }
-    }
+    final int size = selected > 0 ? selected : samples;
 
     // add the offset of the active area to the coordinates
-    final float xcorner = (float) activeRegion.getX();
-    final float ycorner = (float) activeRegion.getY();
+    final double xcorner = activeRegion.getX();
+    final double ycorner = activeRegion.getY();
 
     final Point2D[] fhull = new Point2D[size];
 
     // copy hull values
-    for(int i = 0, j = 0; j < size; j++, i += thisSkip) {
+    for(int j = 0; j < size; j++) {
+      final int i = selected > 0 ? surface.getSelected(j) : j * thisSkip;
       fhull[j] =
-          new Point2D.Double(surface.get(i).getX() + xcorner,
-              surface.get(i).getY() + ycorner);
+          new Point2D.Double(surface.getX(i) + xcorner,
+              surface.getY(i) + ycorner);
     }
 
-    // getting rid of unused memory
-    // preventing a memory leak
-    activeRegion = null;
-    potentialArea = null;
-
     return fhull;
   }
 
+  /**
+   * Selects the outline points of a contour when a contour tolerance is set.
+   * Sampling with the skip value is used instead when it needs fewer points.
+   * 
+   * @param contour the contour
+   * @param tolerance the contour tolerance
+   * @param samples the number of points when sampling with the skip value
+   * @return the number of selected points or <code>0</code> if the contour is
+   *         sampled with the skip value
+   */
+  private static int select(final Contour contour, final double tolerance,
+      final int samples) {
+    if(tolerance <= 0) return 0;
+    final int count = contour.select(tolerance);
+    return count < 3 || count >= samples ? 0 : count;
+  }
+
+  /**
+   * Reduces the number of points to skip of a contour when fewer than three
+   * points would remain.
+   * 
+   * @param count the number of points of the contour
+   * @param skip the number of points to skip
+   * @return the reduced number of points to skip
+   */
+  private static int reduceSkip(final int count, final int skip) {
+    int thisSkip = skip;
+    // if we reduced too much (fewer than three points in reduced
+    // surface) reduce skip and try again
+    while(thisSkip > 1 && count / thisSkip < 3) {
+      thisSkip--;
+    }
+    return thisSkip;
+  }
+
+  /**
+   * Moves the threshold and the influence factors of the context on to the
+   * next adjustment pass.
+   * 
+   * @param ctx the context of the calculation
+   * @return whether the pass adds energy to the field
+   */
+  static boolean nextPass(final OutlineContext ctx) {
+    final int maxMarchingIterations =
+        ctx.configuration.getMaxMarchingIterations();
+    ++ctx.passes;
+    // reduce negative influences first; this will allow the surface to
+    // pass without making it fatter all around (which raising the
+    // threshold does)
+    if(ctx.passes <= maxMarchingIterations / 2) {
+      ctx.threshold *= 0.95f;
+      ctx.nodeInfluenceFactor *= 1.2;
+      ctx.edgeInfluenceFactor *= 1.2;
+      return true;
+    }
+    // after half the iterations, start increasing positive energy and
+    // lowering the threshold
+    if(ctx.negativeNodeInfluenceFactor == 0) return false;
+    ctx.threshold *= 0.95f;
+    ctx.negativeNodeInfluenceFactor *= 0.8;
+    return true;
+  }
+
+  /**
+   * Moves a fresh context on to the given adjustment pass. The sums of the
+   * influence factors then hold the factors of all passes so far.
+   * 
+   * @param ctx the fresh context
+   * @param passes the number of adjustment passes
+   */
+  static void skipPasses(final OutlineContext ctx, final int passes) {
+    ctx.nodeInfluenceSum = ctx.nodeInfluenceFactor;
+    ctx.edgeInfluenceSum = ctx.edgeInfluenceFactor;
+    ctx.negativeNodeInfluenceSum = ctx.negativeNodeInfluenceFactor;
+    while(ctx.passes < passes) {
+      if(nextPass(ctx)) {
+        addInfluenceSums(ctx);
+      }
+    }
+  }
+
+  /**
+   * Fills the energy field before the first trace. A warm started calculation
+   * skips the adjustment passes of the warm start. Their energy is added in
+   * one go with the summed influence factors of those passes.
+   * 
+   * @param ctx the context of the calculation
+   * @param source the energy of the items
+   */
+  private static void addInitialEnergy(final OutlineContext ctx,
+      final EnergySource source) {
+    final int passes = ctx.passes;
+    if(passes == 0) {
+      source.addEnergy(ctx);
+      return;
+    }
+    ctx.passes = 0;
+    skipPasses(ctx, passes);
+    final double node = ctx.nodeInfluenceFactor;
+    final double edge = ctx.edgeInfluenceFactor;
+    final double negativeNode = ctx.negativeNodeInfluenceFactor;
+    ctx.nodeInfluenceFactor = ctx.nodeInfluenceSum;
+    ctx.edgeInfluenceFactor = ctx.edgeInfluenceSum;
+    ctx.negativeNodeInfluenceFactor = ctx.negativeNodeInfluenceSum;
+    source.addEnergy(ctx);
+    ctx.nodeInfluenceFactor = node;
+    ctx.edgeInfluenceFactor = edge;
+    ctx.negativeNodeInfluenceFactor = negativeNode;
+  }
+
+  /**
+   * Adds the current influence factors to the sums of all passes.
+   * 
+   * @param ctx the context of the calculation
+   */
+  private static void addInfluenceSums(final OutlineContext ctx) {
+    ctx.nodeInfluenceSum += ctx.nodeInfluenceFactor;
+    ctx.edgeInfluenceSum += ctx.edgeInfluenceFactor;
+    ctx.negativeNodeInfluenceSum += ctx.negativeNodeInfluenceFactor;
+  }
+
+  /**
+   * Fill the surface using marching squares, return true if and only if all
+   * items in the given aggregate are contained inside the surface.
+   * 
+   * @param ctx the context of the calculation
+   * @param contour the surface to fill
+   * @param members the items which should be insider the contour
+   * @param nonMembers the items which should be outside the contour
+   * @return true if and only if marching squares successfully found a surface
+   *         containing all elements in the aggregate
+   */
+  private static boolean calculateContour(final OutlineContext ctx,
+      final Contour contour, final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers) {
+    final BubbleSetConfiguration cfg = ctx.configuration;
+    final Path2D path =
+        ctx.arena != null ? ctx.arena.borrowPath() : new Path2D.Double();
+    ctx.containsNonMember = false;
+    // if no surface could be found stop
+    if(!MarchingSquares.calculateContour(contour, ctx.potentialArea,
+        cfg.getPixelGroup(), ctx.threshold)) return false;
+    final boolean[] containment = testContainment(contour, ctx.activeRegion,
+        members, nonMembers, cfg.getSkip(), cfg.getContourTolerance(), path);
+    ctx.containsNonMember = containment[1];
+    return containment[0];
+  }
+
   /**
    * Fill the surface using marching squares, return true if and only if all
    * items in the given aggregate are contained inside rectangle specified by
@@ -422,15 +910,12 @@ public class BubbleSet implements SetOutline {
   public boolean calculateContour(final ArrayList<Point2D> contour,
       final Rectangle2D bounds, final Rectangle2D[] members,
       final Rectangle2D[] nonMembers, final double[][] potentialArea) {
-
+    final BubbleSetConfiguration cfg = configuration;
     // if no surface could be found stop
-    if(!MarchingSquares.calculateContour(contour, potentialArea, pixelGroup,
-        threshold)) return false;
-
-    final boolean[] containment =
-        testContainment(contour, bounds, members, nonMembers);
-
-    return containment[0];
+    if(!MarchingSquares.calculateContour(contour, potentialArea,
+        cfg.getPixelGroup(), OutlineContext.DEFAULT_THRESHOLD)) return false;
+    return testContainment(contour, bounds, members, nonMembers,
+        cfg.getSkip(), new Path2D.Double())[0];
   }
 
   /**
@@ -448,41 +933,111 @@ public class BubbleSet implements SetOutline {
   public boolean[] testContainment(final ArrayList<Point2D> contour,
       final Rectangle2D bounds, final Rectangle2D[] members,
       final Rectangle2D[] nonMembers) {
+    return testContainment(contour, bounds, members, nonMembers,
+        configuration.getSkip(), new Path2D.Double());
+  }
+
+  /**
+   * Test containment of items in the bubble set.
+   * 
+   * @param contour the points on the surface
+   * @param bounds the bounds of influence used to calculate the surface
+   * @param members the set members which should be inside the contour
+   * @param nonMembers the interference items which should be outside the
+   *          contour
+   * @param skip the number of points to skip
+   * @param g an empty path that is filled with the simulated surface
+   * @return an array where the first element indicates if the set contains all
+   *         required items and the second element indicates if the set contains
+   *         extra items
+   */
+  private static boolean[] testContainment(final ArrayList<Point2D> contour,
+      final Rectangle2D bounds, final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers, final int skip, final Path2D g) {
     // precise bounds checking
     // copy hull values
-    final Path2D g = new Path2D.Double();
     // start with global SKIP value, but decrease skip amount if there
     // aren't enough points in the surface
-    int thisSkip = skip;
+    final int thisSkip = reduceSkip(contour.size(), skip);
     // prepare viz attribute array
-    int size = contour.size();
-    if(thisSkip > 1) {
-      size = contour.size() / thisSkip;
-      // if we reduced too much (fewer than three points in reduced
-      // surface) reduce skip and try again
-      while((size < 3) && (thisSkip > 1)) {
-        thisSkip--;
-        size = contour.size() / thisSkip;
+    final int size =
+        thisSkip > 1 ? contour.size() / thisSkip : contour.size();
+
+    final double xcorner = bounds.getX();
+    final double ycorner = bounds.getY();
+
+    // simulate the surface we will eventually draw, using straight segments
+    // (approximate, but fast)
+    for(int i = 0; i < size - 1; i++) {
+      if(i == 0) {
+        g.moveTo(contour.get(i * thisSkip).getX() + xcorner,
+            contour.get(i * thisSkip).getY() + ycorner);
+      } else {
+        g.lineTo(contour.get(i * thisSkip).getX() + xcorner,
+            contour.get(i * thisSkip).getY() + ycorner);
       }
     }
 
-    final float xcorner = (float) bounds.getX();
-    final float ycorner = (float) bounds.getY();
+    g.closePath();
+    return testContainment(g, members, nonMembers);
+  }
+
+  /**
+   * Test containment of items in the bubble set.
+   * 
+   * @param contour the points on the surface
+   * @param bounds the bounds of influence used to calculate the surface
+   * @param members the set members which should be inside the contour
+   * @param nonMembers the interference items which should be outside the
+   *          contour
+   * @param skip the number of points to skip
+   * @param tolerance the contour tolerance
+   * @param g an empty path that is filled with the simulated surface
+   * @return an array where the first element indicates if the set contains all
+   *         required items and the second element indicates if the set contains
+   *         extra items
+   */
+  private static boolean[] testContainment(final Contour contour,
+      final Rectangle2D bounds, final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers, final int skip, final double tolerance,
+      final Path2D g) {
+    final int thisSkip = reduceSkip(contour.size(), skip);
+    final int samples =
+        thisSkip > 1 ? contour.size() / thisSkip : contour.size();
+    final int selected = select(contour, tolerance, samples);
+    final int size = selected > 0 ? selected : samples;
+
+    final double xcorner = bounds.getX();
+    final double ycorner = bounds.getY();
 
     // simulate the surface we will eventually draw, using straight segments
     // (approximate, but fast)
     for(int i = 0; i < size - 1; i++) {
+      final int p = selected > 0 ? contour.getSelected(i) : i * thisSkip;
       if(i == 0) {
-        g.moveTo((float) contour.get(i * thisSkip).getX() + xcorner,
-            (float) contour.get(i * thisSkip).getY() + ycorner);
+        g.moveTo(contour.getX(p) + xcorner, contour.getY(p) + ycorner);
       } else {
-        g.lineTo((float) contour.get(i * thisSkip).getX() + xcorner,
-            (float) contour.get(i * thisSkip).getY() + ycorner);
+        g.lineTo(contour.getX(p) + xcorner, contour.getY(p) + ycorner);
       }
     }
 
     g.closePath();
+    return testContainment(g, members, nonMembers);
+  }
 
+  /**
+   * Test containment of items in a simulated surface.
+   * 
+   * @param g the simulated surface
+   * @param members the set members which should be inside the contour
+   * @param nonMembers the interference items which should be outside the
+   *          contour
+   * @return an array where the first element indicates if the set contains all
+   *         required items and the second element indicates if the set contains
+   *         extra items
+   */
+  private static boolean[] testContainment(final Path2D g,
+      final Rectangle2D[] members, final Rectangle2D[] nonMembers) {
     boolean containsAll = true;
     boolean containsExtra = false;
 
@@ -513,68 +1068,98 @@ public class BubbleSet implements SetOutline {
   }
 
   /**
-   * Fill the given area with energy, with values modulated by the preset energy
-   * function parameters (radial extent, positive and negative influences for
-   * included and excluded nodes and edges).
+   * Creates the energy source that adds the energy of each item and virtual
+   * edge separately.
+   * 
+   * @param members the rectangles to include
+   * @param nonMembers the rectangles to exclude
+   * @return the energy source
+   */
+  static EnergySource createItemSource(final Item[] members,
+      final Rectangle2D[] nonMembers) {
+    return new EnergySource() {
+
+      @Override
+      public void addEnergy(final OutlineContext ctx) {
+        fillPotentialArea(ctx, members, nonMembers, ctx.cells);
+      }
+
+    };
+  }
+
+  /**
+   * Fill the active area of the context with energy, with values modulated by
+   * the energy function parameters of the context (radial extent, positive and
+   * negative influences for included and excluded nodes and edges).
    * 
-   * @param activeArea the bounding box which contains all set members; the
-   *          bubble set will be within this region
+   * @param ctx the context of the calculation holding the active area and the
+   *          energy field to fill in
    * @param members the rectangles to include
    * @param nonMembers the rectangles to exclude
-   * @param potentialArea the energy field to fill in
+   * @param cells the cells of the energy field to fill in or <code>null</code>
+   *          for the whole field
    */
-  public void fillPotentialArea(final Rectangle2D activeArea,
+  static void fillPotentialArea(final OutlineContext ctx,
       final Item[] members, final Rectangle2D[] nonMembers,
-      final double[][] potentialArea) {
+      final Rectangle cells) {
+    final Rectangle2D activeArea = ctx.activeRegion;
+    final double[][] potentialArea = ctx.potentialArea;
+    final BubbleSetConfiguration cfg = ctx.configuration;
+    final int pixelGroup = cfg.getPixelGroup();
+    final double nodeR0 = cfg.getNodeR0();
+    final double nodeR1 = cfg.getNodeR1();
+    final double edgeR0 = cfg.getEdgeR0();
+    final double edgeR1 = cfg.getEdgeR1();
 
     double influenceFactor = 0;
 
     // add all positive energy (included items) first, as negative energy
     // (morphing) requires all positives to be already set
 
-    if(nodeInfluenceFactor != 0) {
+    if(ctx.nodeInfluenceFactor != 0) {
       for(final Item item : members) {
         // add node energy
-        influenceFactor = nodeInfluenceFactor;
+        influenceFactor = ctx.nodeInfluenceFactor;
         final double nodeRDiff = nodeR0 - nodeR1;
         // using inverse a for numerical stability
         final double inva = nodeRDiff * nodeRDiff;
-        calculateRectangleInfluence(potentialArea, influenceFactor / inva,
-            nodeR1,
+        calculateRectangleInfluence(potentialArea, pixelGroup,
+            influenceFactor / inva, nodeR1,
             new Rectangle2D.Double(item.getX() - activeArea.getX(), item.getY()
-                - activeArea.getY(), item.getWidth(), item.getHeight()));
+                - activeArea.getY(), item.getWidth(), item.getHeight()), cells);
       } // end processing node items of this aggregate
     } // end processing positive node energy
 
-    if(edgeInfluenceFactor != 0) {
+    if(ctx.edgeInfluenceFactor != 0) {
       // add the influence of all the virtual edges
-      influenceFactor = edgeInfluenceFactor;
+      influenceFactor = ctx.edgeInfluenceFactor;
       final double a = 1 / ((edgeR0 - edgeR1) * (edgeR0 - edgeR1));
 
-      if(virtualEdges.size() > 0) {
-        calculateLinesInfluence(potentialArea, a * influenceFactor, edgeR1,
-            virtualEdges, activeArea);
+      if(ctx.virtualEdges.size() > 0) {
+        calculateLinesInfluence(potentialArea, pixelGroup, a
+            * influenceFactor, edgeR1, ctx.virtualEdges, activeArea, cells);
       }
     }
 
     // calculate negative energy contribution for all other visible items
     // within bounds
-    if(negativeNodeInfluenceFactor != 0) {
+    if(ctx.negativeNodeInfluenceFactor != 0) {
       for(final Rectangle2D item : nonMembers) {
         // if item is within influence bounds, add potential
         if(activeArea.intersects(item.getBounds())) {
           // subtract influence
-          influenceFactor = negativeNodeInfluenceFactor;
+          influenceFactor = ctx.negativeNodeInfluenceFactor;
           final double nodeRDiff = nodeR0 - nodeR1;
           // using inverse a for numerical stability
           final double inva = nodeRDiff * nodeRDiff;
           calculateRectangleInfluence(
               potentialArea,
+              pixelGroup,
               influenceFactor / inva,
               nodeR1,
               new Rectangle2D.Double(item.getX() - activeArea.getX(),
                   item.getY() - activeArea.getY(), item.getWidth(),
-                  item.getHeight()));
+                  item.getHeight()), cells);
         }
       }
     }
@@ -607,19 +1192,23 @@ public class BubbleSet implements SetOutline {
    * neighbour). Stores the connections in the virtualEdges collection for each
    * item in the set.
    * 
+   * @param ctx the context of the calculation
    * @param items set members to connect to one another
    * @param nonMembers other on screen rectangles to avoid
    */
-  private void calculateVirtualEdges(final Item[] items,
-      final Rectangle2D[] nonMembers) {
+  private void calculateVirtualEdges(final OutlineContext ctx,
+      final Item[] items, final Rectangle2D[] nonMembers) {
     final Deque<Item> visited = new ArrayDeque<Item>();
-    virtualEdges.clear();
+    ctx.virtualEdges.clear();
 
     calculateCentroidDistances(items);
     Arrays.sort(items);
 
     for(final Item item : items) {
-      virtualEdges.addAll(connectItem(nonMembers, item, visited));
+      checkCancelled();
+      // the outline is replaced by the fallback anyway
+      if(ctx.isExpired()) return;
+      ctx.virtualEdges.addAll(connectItem(ctx, nonMembers, item, visited));
       visited.add(item);
     }
   }
@@ -630,14 +1219,20 @@ public class BubbleSet implements SetOutline {
    * neighbour include distance and number of intervening non-set items on the
    * straight line between the item and the candidate neighbour.
    * 
+   * @param ctx the context of the calculation
    * @param nonMembers the rectangular regions to avoid
    * @param item the item to find the best neighbour for
    * @param visited the already connected items within the set
    * @return a set of lines which connects the given item to it's set while
    *         avoiding interfering items
    */
-  private Deque<Line2D> connectItem(final Rectangle2D[] nonMembers,
-      final Item item, final Collection<Item> visited) {
+  private Deque<Line2D> connectItem(final OutlineContext ctx,
+      final Rectangle2D[] nonMembers, final Item item,
+      final Collection<Item> visited) {
+    final BubbleSetConfiguration cfg = ctx.configuration;
+    final double morphBuffer = cfg.getMorphBuffer();
+    final int maxRoutingIterations = cfg.getMaxRoutingIterations();
+    final boolean useRouteCache = cfg.useRouteCache();
 
     Item closestNeighbour = null;
     Deque<Line2D> scannedLines = new ArrayDeque<Line2D>();
@@ -676,6 +1271,17 @@ public class BubbleSet implements SetOutline {
           new Line2D.Double(item.getCenterX(), item.getCenterY(),
               closestNeighbour.getCenterX(), closestNeighbour.getCenterY());
 
+      // reuse the route of an earlier call if its corridor is unchanged
+      if(useRouteCache) {
+        final Deque<Line2D> cached =
+            routeCache.get(completeLine.getX1(), completeLine.getY1(),
+                completeLine.getX2(), completeLine.getY2(), morphBuffer,
+                maxRoutingIterations, nonMembers);
+        if(cached != null) return cached;
+      }
+      // the region that is looked at while routing
+      final Rectangle2D corridor = completeLine.getBounds2D();
+
       // route the edge around intersecting nodes not in set
       linesToCheck.push(completeLine);
 
@@ -684,9 +1290,14 @@ public class BubbleSet implements SetOutline {
       final Intersection[] intersections = new Intersection[4];
       int numIntersections = 0;
       while(hasIntersection && iterations < maxRoutingIterations) {
+        checkCancelled();
+        // an unfinished route must not be cached
+        if(ctx.isExpired()) return scannedLines;
         hasIntersection = false;
         while(!hasIntersection && !linesToCheck.isEmpty()) {
           final Line2D line = linesToCheck.pop();
+          corridor.add(line.getX1(), line.getY1());
+          corridor.add(line.getX2(), line.getY2());
 
           // resolve intersections in order along edge
           final Rectangle2D closestItem = getCenterItem(nonMembers, line);
@@ -698,6 +1309,12 @@ public class BubbleSet implements SetOutline {
 
             // 2 intersections = line passes through item
             if(numIntersections == 2) {
+              // all candidate points lie within the morph buffer
+              final Rectangle2D b = closestItem.getBounds();
+              corridor.add(b.getMinX() - morphBuffer, b.getMinY()
+                  - morphBuffer);
+              corridor.add(b.getMaxX() + morphBuffer, b.getMaxY()
+                  + morphBuffer);
               double tempMorphBuffer = morphBuffer;
 
               Point2D movePoint =
@@ -808,6 +1425,11 @@ public class BubbleSet implements SetOutline {
         }
       }
       scannedLines = linesToCheck;
+      if(useRouteCache) {
+        routeCache.put(completeLine.getX1(), completeLine.getY1(),
+            completeLine.getX2(), completeLine.getY2(), morphBuffer,
+            maxRoutingIterations, scannedLines, corridor, nonMembers);
+      }
     }
     return scannedLines;
   }
@@ -867,6 +1489,7 @@ public class BubbleSet implements SetOutline {
   public void calculatePointInfluence(final double[][] potentialArea,
       final double factor, final double r1, final double pointx,
       final double pointy) {
+    final int pixelGroup = configuration.getPixelGroup();
     double tempX = 0, tempY = 0, distance = 0;
 
     // for every point in potentialArea, calculate distance to point and add
@@ -898,6 +1521,7 @@ public class BubbleSet implements SetOutline {
    */
   public void calculateLineInfluence(final double[][] potentialArea,
       final double influenceFactor, final double r1, final Line2D line) {
+    final int pixelGroup = configuration.getPixelGroup();
     double tempX, tempY, distance = 0;
 
     final Rectangle2D r = line.getBounds2D();
@@ -993,6 +1617,28 @@ public class BubbleSet implements SetOutline {
   public void calculateLinesInfluence(final double[][] potentialArea,
       final double influenceFactor, final double r1, final Deque<Line2D> lines,
       final Rectangle2D activeRegion) {
+    calculateLinesInfluence(potentialArea, configuration.getPixelGroup(),
+        influenceFactor, r1, lines, activeRegion, null);
+  }
+
+  /**
+   * Add a contribution of a line source to all points in a given area. For
+   * every point in the given area, the distance to the closest point on the
+   * line is calculated and this distance is input into the gradient influence
+   * function, then added to the potentialArea.
+   * 
+   * @param potentialArea the area to fill with influence values
+   * @param pixelGroup the size of the super pixels
+   * @param influenceFactor the influence factor of the line in the area
+   * @param r1 the radius where influence drops to zero
+   * @param lines the lines to add
+   * @param activeRegion the active area of this bubble set
+   * @param cells the cells of the area to change or <code>null</code> for all
+   */
+  static void calculateLinesInfluence(final double[][] potentialArea,
+      final int pixelGroup, final double influenceFactor, final double r1,
+      final Deque<Line2D> lines, final Rectangle2D activeRegion,
+      final Rectangle cells) {
 
     double tempX, tempY, distanceSq = 0;
     double minDistanceSq = Double.MAX_VALUE;
@@ -1016,22 +1662,29 @@ public class BubbleSet implements SetOutline {
         r.getWidth(), r.getHeight());
 
     // find the affected subregion of potentialArea
-    final int startX =
+    int startX =
         Math.min(Math.max(0, (int) ((r.getX() - r1) / pixelGroup)),
             potentialArea.length - 1);
-    final int startY =
+    int startY =
         Math.min(Math.max(0, (int) ((r.getY() - r1) / pixelGroup)),
             potentialArea[startX].length - 1);
-    final int endX =
+    int endX =
         Math.min(potentialArea.length - 1,
             Math.max(0, (int) ((r.getX() + r.getWidth() + r1) / pixelGroup)));
-    final int endY =
+    int endY =
         Math.min(potentialArea[startX].length,
             Math.max(0, (int) ((r.getY() + r.getHeight() + r1) / pixelGroup)));
+    if(cells != null) {
+      startX = Math.max(startX, cells.x);
+      startY = Math.max(startY, cells.y);
+      endX = Math.min(endX, cells.x + cells.width);
+      endY = Math.min(endY, cells.y + cells.height);
+    }
 
     // for every point in active part of potentialArea, calculate distance
     // to nearest point on line and add influence
     for(int x = startX; x < endX; ++x) {
+      checkCancelled();
       for(int y = startY; y < endY; ++y) {
 
         // if we are adding negative energy, skip if not already
@@ -1077,25 +1730,53 @@ public class BubbleSet implements SetOutline {
    */
   public void calculateRectangleInfluence(final double[][] potentialArea,
       final double influenceFactor, final double r1, final Rectangle2D rect) {
+    calculateRectangleInfluence(potentialArea, configuration.getPixelGroup(),
+        influenceFactor, r1, rect, null);
+  }
+
+  /**
+   * Add a contribution of a rectangle source to all points in a given area. For
+   * every point in the given area, the distance to the closest point on the
+   * rectangle is calculated and this distance is input into the gradient
+   * influence function, then added to the potentialArea.
+   * 
+   * @param potentialArea the area to fill with influence values
+   * @param pixelGroup the size of the super pixels
+   * @param influenceFactor the influence factor of the line in the area
+   * @param r1 the radius where influence drops to zero
+   * @param rect the rectangle source to add to the set
+   * @param cells the cells of the area to change or <code>null</code> for all
+   */
+  private static void calculateRectangleInfluence(
+      final double[][] potentialArea, final int pixelGroup,
+      final double influenceFactor, final double r1, final Rectangle2D rect,
+      final Rectangle cells) {
     double tempX, tempY, distance = 0;
 
     // find the affected subregion of potentialArea
-    final int startX =
+    int startX =
         Math.min(Math.max(0, (int) ((rect.getX() - r1) / pixelGroup)),
             potentialArea.length - 1);
-    final int startY =
+    int startY =
         Math.min(Math.max(0, (int) ((rect.getY() - r1) / pixelGroup)),
             potentialArea[startX].length - 1);
-    final int endX =
+    int endX =
         Math.min(potentialArea.length - 1, Math.max(0, (int) ((rect.getX()
             + rect.getWidth() + r1) / pixelGroup)));
-    final int endY =
+    int endY =
         Math.min(potentialArea[startX].length, Math.max(0, (int) ((rect.getY()
             + rect.getHeight() + r1) / pixelGroup)));
+    if(cells != null) {
+      startX = Math.max(startX, cells.x);
+      startY = Math.max(startY, cells.y);
+      endX = Math.min(endX, cells.x + cells.width);
+      endY = Math.min(endY, cells.y + cells.height);
+    }
 
     // for every point in active subregion of potentialArea, calculate
     // distance to nearest point on rectangle and add influence
     for(int x = startX; x < endX; x++) {
+      checkCancelled();
       for(int y = startY; y < endY; y++) {
 
         // if we are adding negative energy, skip if not already
@@ -1203,6 +1884,7 @@ public class BubbleSet implements SetOutline {
   public void calculateAreaInfluence(final double[][] potentialArea,
       final double influenceFactor, final double r1, final Area a,
       final Rectangle2D activeArea) {
+    final int pixelGroup = configuration.getPixelGroup();
     double tempX, tempY, distance = 0;
 
     // create a deque of the lines
@@ -1237,8 +1919,8 @@ public class BubbleSet implements SetOutline {
     }
 
     // go around edges
-    calculateLinesInfluence(potentialArea, influenceFactor, r1, lines,
-        activeArea);
+    calculateLinesInfluence(potentialArea, pixelGroup, influenceFactor, r1,
+        lines, activeArea, null);
 
     final int startX =
         Math.min(Math.max(0, (int) ((activeArea.getX() - r1) / pixelGroup)),
@@ -1291,38 +1973,6 @@ public class BubbleSet implements SetOutline {
     }
   }
 
-  /**
-   * Paint the most recently calculated energy function into the given graphics
-   * context. Used to visualize the energy calculation for debugging purposes.
-   * 
-   * @param g2d the graphics context to draw into
-   */
-
-  public void paintPotential(final Graphics2D g2d) {
-    if(potentialArea == null) return;
-
-    // draw energy field
-    int tempX, tempY;
-    for(int x = 0; x < potentialArea.length - 1; x++) {
-      for(int y = 0; y < potentialArea[x].length - 1; y++) {
-        tempX = x * pixelGroup + (int) activeRegion.getX();
-        tempY = y * pixelGroup + (int) activeRegion.getY();
-
-        if(potentialArea[x][y] < 0) {
-          g2d.setColor(new Color(20, 20, 150, (int) Math.min(255,
-              Math.abs(potentialArea[x][y] * 40))));
-        } else {
-          g2d.setColor(new Color(150, 20, 20, (int) Math.min(255,
-              Math.abs(potentialArea[x][y] * 40))));
-        }
-        if(potentialArea[x][y] == lastThreshold) {
-          g2d.setColor(new Color(0, 0, 0, 120));
-        }
-        g2d.fillRect(tempX, tempY, pixelGroup, pixelGroup);
-      }
-    }
-  }
-
   /**
    * Find an appropriate split point in the line to wrap the line around the
    * given rectangle.
@@ -1488,13 +2138,38 @@ public class BubbleSet implements SetOutline {
   // GETTERS / SETTERS
   // ///////////////////////
 
+  /**
+   * Getter.
+   * 
+   * @return the parameters used for the next outline calculations.
+   */
+  @Override
+  public BubbleSetConfiguration getConfiguration() {
+    return configuration;
+  }
+
+  /**
+   * Setter. Calculations that are already running keep using the parameters
+   * they have started with.
+   * 
+   * @param configuration the parameters for the next outline calculations.
+   */
+  public synchronized void setConfiguration(
+      final BubbleSetConfiguration configuration) {
+    if(configuration == null) throw new NullPointerException("configuration");
+    this.configuration = configuration;
+    if(!configuration.useRouteCache()) {
+      routeCache.clear();
+    }
+  }
+
   /**
    * Getter.
    * 
    * @return the maximum number of routing iterations.
    */
   public int getMaxRoutingIterations() {
-    return maxRoutingIterations;
+    return configuration.getMaxRoutingIterations();
   }
 
   /**
@@ -1503,7 +2178,7 @@ public class BubbleSet implements SetOutline {
    * @return the maximum number of marching iterations.
    */
   public int getMaxMarchingIterations() {
-    return maxMarchingIterations;
+    return configuration.getMaxMarchingIterations();
   }
 
   /**
@@ -1513,7 +2188,7 @@ public class BubbleSet implements SetOutline {
    *         results in lower resolution contours and faster calculations).
    */
   public int getPixelGroup() {
-    return pixelGroup;
+    return configuration.getPixelGroup();
   }
 
   /**
@@ -1523,8 +2198,8 @@ public class BubbleSet implements SetOutline {
    *          (larger results in lower resolution contours and faster
    *          calculations).
    */
-  public void setPixelGroup(final int pixelGroup) {
-    this.pixelGroup = pixelGroup;
+  public synchronized void setPixelGroup(final int pixelGroup) {
+    configuration = configuration.withPixelGroup(pixelGroup);
   }
 
   /**
@@ -1533,7 +2208,7 @@ public class BubbleSet implements SetOutline {
    * @return the edgeR0
    */
   public double getEdgeR0() {
-    return edgeR0;
+    return configuration.getEdgeR0();
   }
 
   /**
@@ -1541,8 +2216,8 @@ public class BubbleSet implements SetOutline {
    * 
    * @param edgeR0 the edgeR0 to set
    */
-  public void setEdgeR0(final double edgeR0) {
-    this.edgeR0 = edgeR0;
+  public synchronized void setEdgeR0(final double edgeR0) {
+    configuration = configuration.withEdgeR0(edgeR0);
   }
 
   /**
@@ -1551,7 +2226,7 @@ public class BubbleSet implements SetOutline {
    * @return the edgeR1
    */
   public double getEdgeR1() {
-    return edgeR1;
+    return configuration.getEdgeR1();
   }
 
   /**
@@ -1559,8 +2234,8 @@ public class BubbleSet implements SetOutline {
    * 
    * @param edgeR1 the edgeR1 to set
    */
-  public void setEdgeR1(final double edgeR1) {
-    this.edgeR1 = edgeR1;
+  public synchronized void setEdgeR1(final double edgeR1) {
+    configuration = configuration.withEdgeR1(edgeR1);
   }
 
   /**
@@ -1569,7 +2244,7 @@ public class BubbleSet implements SetOutline {
    * @return the nodeR0
    */
   public double getNodeR0() {
-    return nodeR0;
+    return configuration.getNodeR0();
   }
 
   /**
@@ -1577,8 +2252,8 @@ public class BubbleSet implements SetOutline {
    * 
    * @param nodeR0 the nodeR0 to set
    */
-  public void setNodeR0(final double nodeR0) {
-    this.nodeR0 = nodeR0;
+  public synchronized void setNodeR0(final double nodeR0) {
+    configuration = configuration.withNodeR0(nodeR0);
   }
 
   /**
@@ -1587,7 +2262,7 @@ public class BubbleSet implements SetOutline {
    * @return the nodeR1
    */
   public double getNodeR1() {
-    return nodeR1;
+    return configuration.getNodeR1();
   }
 
   /**
@@ -1595,8 +2270,8 @@ public class BubbleSet implements SetOutline {
    * 
    * @param nodeR1 the nodeR1 to set
    */
-  public void setNodeR1(final double nodeR1) {
-    this.nodeR1 = nodeR1;
+  public synchronized void setNodeR1(final double nodeR1) {
+    configuration = configuration.withNodeR1(nodeR1);
   }
 
   /**
@@ -1605,7 +2280,7 @@ public class BubbleSet implements SetOutline {
    * @return the morphBuffer
    */
   public double getMorphBuffer() {
-    return morphBuffer;
+    return configuration.getMorphBuffer();
   }
 
   /**
@@ -1613,8 +2288,8 @@ public class BubbleSet implements SetOutline {
    * 
    * @param morphBuffer the morphBuffer to set
    */
-  public void setMorphBuffer(final double morphBuffer) {
-    this.morphBuffer = morphBuffer;
+  public synchronized void setMorphBuffer(final double morphBuffer) {
+    configuration = configuration.withMorphBuffer(morphBuffer);
   }
 
   /**
@@ -1624,7 +2299,7 @@ public class BubbleSet implements SetOutline {
    *         the contour
    */
   public int getSkip() {
-    return skip;
+    return configuration.getSkip();
   }
 
   /**
@@ -1633,27 +2308,159 @@ public class BubbleSet implements SetOutline {
    * @param skip the number of points to skip in the marching squares when
    *          making the contour
    */
-  public void setSkip(final int skip) {
-    this.skip = skip;
+  public synchronized void setSkip(final int skip) {
+    configuration = configuration.withSkip(skip);
   }
 
   /**
    * Getter.
    * 
-   * @return whether this bubble set uses optimized data structures.
+   * @return always <code>true</code>.
+   * @deprecated The contour is always stored compactly, so this option has no
+   *             effect.
    */
+  @Deprecated
   public boolean useOptimizedDataStructures() {
-    return useOptimizedDataStructures;
+    return true;
   }
 
   /**
-   * Getter.
+   * Setter.
    * 
-   * @param useOptimizedDataStructures whether to use optimized data structures
+   * @param useOptimizedDataStructures ignored
+   * @deprecated The contour is always stored compactly, so this option has no
+   *             effect.
    */
+  @Deprecated
   public void setUseOptimizedDataStructures(
       final boolean useOptimizedDataStructures) {
-    this.useOptimizedDataStructures = useOptimizedDataStructures;
+    // nothing to do
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return whether this bubble set reuses the routes of virtual edges from
+   *         earlier calls.
+   */
+  public boolean useRouteCache() {
+    return configuration.useRouteCache();
+  }
+
+  /**
+   * Setter. A cached route is reused as long as the non-member rectangles
+   * around it stay the same.
+   * 
+   * @param useRouteCache whether to reuse the routes of virtual edges from
+   *          earlier calls
+   */
+  public synchronized void setUseRouteCache(final boolean useRouteCache) {
+    configuration = configuration.withRouteCache(useRouteCache);
+    if(!useRouteCache) {
+      routeCache.clear();
+    }
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return the time in nanoseconds a calculation may take before it returns
+   *         an approximate outline. <code>0</code> means no limit.
+   */
+  public long getTimeBudget() {
+    return configuration.getTimeBudget();
+  }
+
+  /**
+   * Setter. Use
+   * {@link #createOutlineResult(Rectangle2D[], Rectangle2D[], Line2D[])} to
+   * find out whether an outline has been cut short. Sessions ignore the
+   * budget.
+   * 
+   * @param timeBudget the time limit in nanoseconds or <code>0</code> for no
+   *          limit
+   */
+  public synchronized void setTimeBudget(final long timeBudget) {
+    configuration = configuration.withTimeBudget(timeBudget);
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return whether sets whose padded convex hull contains no non-member are
+   *         outlined by their rounded convex hull.
+   */
+  public boolean useHullFastPath() {
+    return configuration.useHullFastPath();
+  }
+
+  /**
+   * Setter. The rounded convex hull skips routing and the energy field for
+   * sets that no non-member comes close to. It approximates the outline of
+   * the energy field. Sets with additional edges and sessions always use the
+   * energy field.
+   * 
+   * @param useHullFastPath whether to outline isolated sets by their rounded
+   *          convex hull
+   */
+  public synchronized void setUseHullFastPath(final boolean useHullFastPath) {
+    configuration = configuration.withHullFastPath(useHullFastPath);
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return the maximal distance in pixels between the outline and the traced
+   *         contour or <code>0</code> if the contour is sampled with the skip
+   *         value.
+   */
+  public double getContourTolerance() {
+    return configuration.getContourTolerance();
+  }
+
+  /**
+   * Setter. With a positive tolerance the outline keeps only the corners of
+   * the traced contour it needs to stay within the tolerance, so long straight
+   * or gently curved stretches become single segments. When sampling with the
+   * skip value needs fewer points it is used instead, which is usually the
+   * case for tolerances below the pixel group. Tolerances of several pixel
+   * groups may cut off parts of members, so the energy field needs more
+   * adjustment passes and the calculation takes longer.
+   * 
+   * @param contourTolerance the maximal distance in pixels between the
+   *          outline and the traced contour or <code>0</code> to sample the
+   *          contour with the skip value
+   */
+  public synchronized void setContourTolerance(final double contourTolerance) {
+    configuration = configuration.withContourTolerance(contourTolerance);
+  }
+
+  /**
+   * Sets the number of energy field cells each thread keeps for later
+   * calculations. Fields are reused when a set of the same size is calculated
+   * again. A capacity of zero disables the reuse of fields.
+   * 
+   * @param cells The number of cells.
+   */
+  public static void setScratchCapacity(final int cells) {
+    OutlineArena.setCapacity(cells);
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of energy field cells each thread keeps for later
+   *         calculations.
+   */
+  public static int getScratchCapacity() {
+    return OutlineArena.getCapacity();
+  }
+
+  /**
+   * Drops the scratch buffers the current thread keeps for later calculations.
+   */
+  public static void releaseScratch() {
+    OutlineArena.clearCurrent();
   }
 
 }
@@ -0,0 +1,538 @@
+package setvis.bubbleset;
+
+/**
+ * The immutable set of parameters of a {@link BubbleSet}. Since a configuration
+ * can not change, a calculation that has started with one configuration is not
+ * affected by later changes to the bubble set.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+public final class BubbleSetConfiguration {
+
+  /** The maximum number of passes through all nodes to attempt edge rerouting. */
+  private final int maxRoutingIterations;
+
+  /**
+   * The maximum number of passes of marching squares while trying to ensure
+   * connectedness.
+   */
+  private final int maxMarchingIterations;
+
+  /**
+   * The size of square super pixels used for calculations (larger results in
+   * lower resolution contours and faster calculations).
+   */
+  private final int pixelGroup;
+
+  /**
+   * The radius for the contour around a virtual edge -- the point at which the
+   * energy is 1.
+   */
+  private final double edgeR0;
+
+  /**
+   * The radius at which potential reaches zero -- the extent of energy
+   * contribution by the virtual edge.
+   */
+  private final double edgeR1;
+
+  /**
+   * the radius for the contour around a single node -- the point at which the
+   * energy is 1.
+   */
+  private final double nodeR0;
+
+  /**
+   * The radius at which potential reaches zero -- the extent of energy
+   * contribution by the node.
+   */
+  private final double nodeR1;
+
+  /**
+   * The distance to route edges around a node.
+   */
+  private final double morphBuffer;
+
+  /**
+   * Number of points to skip in the marching squares when making the contour.
+   * Larger numbers create smoother, but less precise curves.
+   */
+  private final int skip;
+
+  /**
+   * Whether to reuse the routes of virtual edges from earlier calls.
+   */
+  private final boolean useRouteCache;
+
+  /**
+   * The time in nanoseconds a calculation may take before it returns an
+   * approximate outline. <code>0</code> means no limit.
+   */
+  private final long timeBudget;
+
+  /**
+   * Whether sets whose padded convex hull contains no non-member are outlined
+   * by their rounded convex hull instead of the energy field.
+   */
+  private final boolean useHullFastPath;
+
+  /**
+   * The maximal distance in pixels between the outline and the traced contour
+   * or <code>0</code> to sample the contour with the skip value instead.
+   */
+  private final double contourTolerance;
+
+  /**
+   * Creates a configuration with the default parameters.
+   */
+  public BubbleSetConfiguration() {
+    this(BubbleSet.DEFAULT_MAX_ROUTING_ITERATIONS,
+        BubbleSet.DEFAULT_MAX_MARCHING_ITERATIONS,
+        BubbleSet.DEFAULT_PIXEL_GROUP, BubbleSet.DEFAULT_EDGE_R0,
+        BubbleSet.DEFAULT_EDGE_R1, BubbleSet.DEFAULT_NODE_R0,
+        BubbleSet.DEFAULT_NODE_R1, BubbleSet.DEFAULT_MORPH_BUFFER,
+        BubbleSet.DEFAULT_SKIP);
+  }
+
+  /**
+   * Creates a configuration with the given parameters. The route cache is
+   * used.
+   * 
+   * @param routingIterations the maximum number of passes through all items to
+   *          attempt edge rerouting
+   * @param marchingIterations the maximum number of passes of marching squares
+   *          while trying to ensure connectedness
+   * @param pixelGroup the size of square super pixels used for calculations
+   *          (larger results in lower resolution contours and faster
+   *          calculations).
+   * @param edgeR0 the radius for the contour around a virtual edge -- the point
+   *          at which the energy is 1
+   * @param edgeR1 the extent of energy contribution by a virtual edge -- the
+   *          radius at which potential reaches 0
+   * @param nodeR0 the radius for the contour around a rectangle -- the point at
+   *          which the energy is 1
+   * @param nodeR1 the extent of energy contribution by a rectangle -- the
+   *          radius at which potential reaches 0
+   * @param morphBuffer the buffer distance to route the bubble set around
+   *          interfering rectangles; usually nodeR0 is a good value
+   * @param skip the number of points to skip in the marching squares when
+   *          making the contour. Larger numbers create smoother, but less
+   *          precise curves
+   */
+  public BubbleSetConfiguration(final int routingIterations,
+      final int marchingIterations, final int pixelGroup,
+      final double edgeR0, final double edgeR1, final double nodeR0,
+      final double nodeR1, final double morphBuffer, final int skip) {
+    this(routingIterations, marchingIterations, pixelGroup, edgeR0, edgeR1,
+        nodeR0, nodeR1, morphBuffer, skip, true, 0, false, 0);
+  }
+
+  /**
+   * Creates a configuration with all parameters. The parameters of the
+   * <code>with</code> methods are named like the fields, so each of them
+   * passes the fields with its parameter in place of the replaced field.
+   * 
+   * @param maxRoutingIterations the maximum number of passes through all items
+   *          to attempt edge rerouting
+   * @param maxMarchingIterations the maximum number of passes of marching
+   *          squares while trying to ensure connectedness
+   * @param pixelGroup the size of square super pixels used for calculations
+   * @param edgeR0 the radius for the contour around a virtual edge
+   * @param edgeR1 the extent of energy contribution by a virtual edge
+   * @param nodeR0 the radius for the contour around a rectangle
+   * @param nodeR1 the extent of energy contribution by a rectangle
+   * @param morphBuffer the buffer distance to route the bubble set around
+   *          interfering rectangles
+   * @param skip the number of points to skip in the marching squares when
+   *          making the contour
+   * @param useRouteCache whether to reuse routes from earlier calls
+   * @param timeBudget the time limit in nanoseconds or <code>0</code> for no
+   *          limit
+   * @param useHullFastPath whether isolated sets are outlined by their rounded
+   *          convex hull
+   * @param contourTolerance the maximal distance in pixels between the
+   *          outline and the traced contour or <code>0</code> to sample the
+   *          contour with the skip value
+   */
+  private BubbleSetConfiguration(final int maxRoutingIterations,
+      final int maxMarchingIterations, final int pixelGroup,
+      final double edgeR0, final double edgeR1, final double nodeR0,
+      final double nodeR1, final double morphBuffer, final int skip,
+      final boolean useRouteCache, final long timeBudget,
+      final boolean useHullFastPath, final double contourTolerance) {
+    this.maxRoutingIterations = maxRoutingIterations;
+    this.maxMarchingIterations = maxMarchingIterations;
+    this.pixelGroup = pixelGroup;
+    this.edgeR0 = edgeR0;
+    this.edgeR1 = edgeR1;
+    this.nodeR0 = nodeR0;
+    this.nodeR1 = nodeR1;
+    this.morphBuffer = morphBuffer;
+    this.skip = skip;
+    this.useRouteCache = useRouteCache;
+    this.timeBudget = timeBudget;
+    this.useHullFastPath = useHullFastPath;
+    this.contourTolerance = contourTolerance;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return the maximum number of routing iterations.
+   */
+  public int getMaxRoutingIterations() {
+    return maxRoutingIterations;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return the maximum number of marching iterations.
+   */
+  public int getMaxMarchingIterations() {
+    return maxMarchingIterations;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return the size of square super pixels used for calculations (larger
+   *         results in lower resolution contours and faster calculations).
+   */
+  public int getPixelGroup() {
+    return pixelGroup;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return the edgeR0
+   */
+  public double getEdgeR0() {
+    return edgeR0;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return the edgeR1
+   */
+  public double getEdgeR1() {
+    return edgeR1;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return the nodeR0
+   */
+  public double getNodeR0() {
+    return nodeR0;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return the nodeR1
+   */
+  public double getNodeR1() {
+    return nodeR1;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return the morphBuffer
+   */
+  public double getMorphBuffer() {
+    return morphBuffer;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return the number of points to skip in the marching squares when making
+   *         the contour
+   */
+  public int getSkip() {
+    return skip;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return always <code>true</code>.
+   * @deprecated The contour is always stored compactly, so this option has no
+   *             effect.
+   */
+  @Deprecated
+  public boolean useOptimizedDataStructures() {
+    return true;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return whether the routes of virtual edges from earlier calls are reused.
+   */
+  public boolean useRouteCache() {
+    return useRouteCache;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return the time in nanoseconds a calculation may take before it returns
+   *         an approximate outline. <code>0</code> means no limit.
+   */
+  public long getTimeBudget() {
+    return timeBudget;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return whether sets whose padded convex hull contains no non-member are
+   *         outlined by their rounded convex hull.
+   */
+  public boolean useHullFastPath() {
+    return useHullFastPath;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return the maximal distance in pixels between the outline and the traced
+   *         contour or <code>0</code> if the contour is sampled with the skip
+   *         value.
+   */
+  public double getContourTolerance() {
+    return contourTolerance;
+  }
+
+  /**
+   * Creates a copy with a different pixel group.
+   * 
+   * @param pixelGroup the size of square super pixels
+   * @return the new configuration
+   */
+  public BubbleSetConfiguration withPixelGroup(final int pixelGroup) {
+    return new BubbleSetConfiguration(maxRoutingIterations,
+        maxMarchingIterations, pixelGroup, edgeR0, edgeR1, nodeR0, nodeR1,
+        morphBuffer, skip, useRouteCache, timeBudget, useHullFastPath,
+        contourTolerance);
+  }
+
+  /**
+   * Creates a copy with a different edgeR0.
+   * 
+   * @param edgeR0 the radius where the energy of an edge is 1
+   * @return the new configuration
+   */
+  public BubbleSetConfiguration withEdgeR0(final double edgeR0) {
+    return new BubbleSetConfiguration(maxRoutingIterations,
+        maxMarchingIterations, pixelGroup, edgeR0, edgeR1, nodeR0, nodeR1,
+        morphBuffer, skip, useRouteCache, timeBudget, useHullFastPath,
+        contourTolerance);
+  }
+
+  /**
+   * Creates a copy with a different edgeR1.
+   * 
+   * @param edgeR1 the radius where the energy of an edge is 0
+   * @return the new configuration
+   */
+  public BubbleSetConfiguration withEdgeR1(final double edgeR1) {
+    return new BubbleSetConfiguration(maxRoutingIterations,
+        maxMarchingIterations, pixelGroup, edgeR0, edgeR1, nodeR0, nodeR1,
+        morphBuffer, skip, useRouteCache, timeBudget, useHullFastPath,
+        contourTolerance);
+  }
+
+  /**
+   * Creates a copy with a different nodeR0.
+   * 
+   * @param nodeR0 the radius where the energy of a node is 1
+   * @return the new configuration
+   */
+  public BubbleSetConfiguration withNodeR0(final double nodeR0) {
+    return new BubbleSetConfiguration(maxRoutingIterations,
+        maxMarchingIterations, pixelGroup, edgeR0, edgeR1, nodeR0, nodeR1,
+        morphBuffer, skip, useRouteCache, timeBudget, useHullFastPath,
+        contourTolerance);
+  }
+
+  /**
+   * Creates a copy with a different nodeR1.
+   * 
+   * @param nodeR1 the radius where the energy of a node is 0
+   * @return the new configuration
+   */
+  public BubbleSetConfiguration withNodeR1(final double nodeR1) {
+    return new BubbleSetConfiguration(maxRoutingIterations,
+        maxMarchingIterations, pixelGroup, edgeR0, edgeR1, nodeR0, nodeR1,
+        morphBuffer, skip, useRouteCache, timeBudget, useHullFastPath,
+        contourTolerance);
+  }
+
+  /**
+   * Creates a copy with a different morphBuffer.
+   * 
+   * @param morphBuffer the buffer distance to route around rectangles
+   * @return the new configuration
+   */
+  public BubbleSetConfiguration withMorphBuffer(final double morphBuffer) {
+    return new BubbleSetConfiguration(maxRoutingIterations,
+        maxMarchingIterations, pixelGroup, edgeR0, edgeR1, nodeR0, nodeR1,
+        morphBuffer, skip, useRouteCache, timeBudget, useHullFastPath,
+        contourTolerance);
+  }
+
+  /**
+   * Creates a copy with a different number of skipped points.
+   * 
+   * @param skip the number of points to skip
+   * @return the new configuration
+   */
+  public BubbleSetConfiguration withSkip(final int skip) {
+    return new BubbleSetConfiguration(maxRoutingIterations,
+        maxMarchingIterations, pixelGroup, edgeR0, edgeR1, nodeR0, nodeR1,
+        morphBuffer, skip, useRouteCache, timeBudget, useHullFastPath,
+        contourTolerance);
+  }
+
+  /**
+   * Returns this configuration unchanged.
+   * 
+   * @param useOptimizedDataStructures ignored
+   * @return this configuration
+   * @deprecated The contour is always stored compactly, so this option has no
+   *             effect.
+   */
+  @Deprecated
+  public BubbleSetConfiguration withOptimizedDataStructures(
+      final boolean useOptimizedDataStructures) {
+    return this;
+  }
+
+  /**
+   * Creates a copy that does or does not reuse routes from earlier calls.
+   * 
+   * @param useRouteCache whether to reuse routes from earlier calls
+   * @return the new configuration
+   */
+  public BubbleSetConfiguration withRouteCache(final boolean useRouteCache) {
+    return new BubbleSetConfiguration(maxRoutingIterations,
+        maxMarchingIterations, pixelGroup, edgeR0, edgeR1, nodeR0, nodeR1,
+        morphBuffer, skip, useRouteCache, timeBudget, useHullFastPath,
+        contourTolerance);
+  }
+
+  /**
+   * Creates a copy with a different time budget.
+   * 
+   * @param timeBudget the time limit in nanoseconds or <code>0</code> for no
+   *          limit
+   * @return the new configuration
+   */
+  public BubbleSetConfiguration withTimeBudget(final long timeBudget) {
+    if(timeBudget < 0) throw new IllegalArgumentException("timeBudget: "
+        + timeBudget);
+    return new BubbleSetConfiguration(maxRoutingIterations,
+        maxMarchingIterations, pixelGroup, edgeR0, edgeR1, nodeR0, nodeR1,
+        morphBuffer, skip, useRouteCache, timeBudget, useHullFastPath,
+        contourTolerance);
+  }
+
+  /**
+   * Creates a copy that does or does not outline isolated sets by their
+   * rounded convex hull.
+   * 
+   * @param useHullFastPath whether isolated sets are outlined by their rounded
+   *          convex hull
+   * @return the new configuration
+   */
+  public BubbleSetConfiguration withHullFastPath(
+      final boolean useHullFastPath) {
+    return new BubbleSetConfiguration(maxRoutingIterations,
+        maxMarchingIterations, pixelGroup, edgeR0, edgeR1, nodeR0, nodeR1,
+        morphBuffer, skip, useRouteCache, timeBudget, useHullFastPath,
+        contourTolerance);
+  }
+
+  /**
+   * Creates a copy with a different contour tolerance. See
+   * {@link BubbleSet#setContourTolerance(double)} for its effects.
+   * 
+   * @param contourTolerance the maximal distance in pixels between the
+   *          outline and the traced contour or <code>0</code> to sample the
+   *          contour with the skip value
+   * @return the new configuration
+   */
+  public BubbleSetConfiguration withContourTolerance(
+      final double contourTolerance) {
+    if(!(contourTolerance >= 0)) throw new IllegalArgumentException(
+        "contourTolerance: " + contourTolerance);
+    return new BubbleSetConfiguration(maxRoutingIterations,
+        maxMarchingIterations, pixelGroup, edgeR0, edgeR1, nodeR0, nodeR1,
+        morphBuffer, skip, useRouteCache, timeBudget, useHullFastPath,
+        contourTolerance);
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if(this == obj) return true;
+    if(!(obj instanceof BubbleSetConfiguration)) return false;
+    final BubbleSetConfiguration c = (BubbleSetConfiguration) obj;
+    return maxRoutingIterations == c.maxRoutingIterations
+        && maxMarchingIterations == c.maxMarchingIterations
+        && pixelGroup == c.pixelGroup && same(edgeR0, c.edgeR0)
+        && same(edgeR1, c.edgeR1) && same(nodeR0, c.nodeR0)
+        && same(nodeR1, c.nodeR1) && same(morphBuffer, c.morphBuffer)
+        && skip == c.skip
+        && useRouteCache == c.useRouteCache && timeBudget == c.timeBudget
+        && useHullFastPath == c.useHullFastPath
+        && same(contourTolerance, c.contourTolerance);
+  }
+
+  @Override
+  public int hashCode() {
+    int res = maxRoutingIterations;
+    res = 31 * res + maxMarchingIterations;
+    res = 31 * res + pixelGroup;
+    res = 31 * res + hash(edgeR0);
+    res = 31 * res + hash(edgeR1);
+    res = 31 * res + hash(nodeR0);
+    res = 31 * res + hash(nodeR1);
+    res = 31 * res + hash(morphBuffer);
+    res = 31 * res + skip;
+    res = 31 * res + (useRouteCache ? 1 : 0);
+    res = 31 * res + (int) (timeBudget ^ (timeBudget >>> 32));
+    res = 31 * res + (useHullFastPath ? 1 : 0);
+    res = 31 * res + hash(contourTolerance);
+    return res;
+  }
+
+  /**
+   * Compares two double values consistent with {@link #hash(double)}.
+   * 
+   * @param a The first value.
+   * @param b The second value.
+   * @return Whether both values are the same.
+   */
+  private static boolean same(final double a, final double b) {
+    return Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+  }
+
+  /**
+   * Computes the hash of a double value.
+   * 
+   * @param v The value.
+   * @return The hash.
+   */
+  private static int hash(final double v) {
+    final long bits = Double.doubleToLongBits(v);
+    return (int) (bits ^ (bits >>> 32));
+  }
+
+}
@@ -0,0 +1,429 @@
+package setvis.bubbleset;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Collection;
+
+import setvis.Group;
+import setvis.SceneIndex;
+
+/**
+ * Calculates the bubble sets of all groups of a scene. Every item is a member
+ * of one group and a non-member of all others. Instead of evaluating the
+ * energy of an item once for every group whose active region it touches, the
+ * energy of all items is added once to a shared field of the scene. The field
+ * of a group is then composed of its own members, its virtual edges, and the
+ * shared field minus its own members.
+ * <p>
+ * All energy fields are aligned to one grid, so the outlines can differ
+ * slightly from the ones created by {@link BubbleSet} for single groups. The
+ * energy of all non-members is subtracted at once instead of stopping at the
+ * non-member that makes a cell negative, and non-members also contribute when
+ * they lie just outside of the active region of a group. The rectangles must
+ * not be changed while the scene is in use. Outlines of different groups can
+ * be calculated concurrently.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+public final class BubbleSetScene {
+
+  /** The binary logarithm of the number of cells per side of a tile. */
+  private static final int TILE_BITS = 6;
+
+  /** The number of cells per side of a tile. */
+  private static final int TILE_SIZE = 1 << TILE_BITS;
+
+  /** The bubble set used for routing the virtual edges. */
+  private final BubbleSet bubbleSet;
+
+  /** The parameters of the calculations. */
+  private final BubbleSetConfiguration configuration;
+
+  /** The members of each group. */
+  private final Rectangle2D[][] groups;
+
+  /** The lines of each group. Entries may be <code>null</code>. */
+  private final Line2D[][] lines;
+
+  /** The index for looking up the non-members of a group. */
+  private final SceneIndex index;
+
+  /** The x coordinate of the first cell of the grid. */
+  private final double originX;
+
+  /** The y coordinate of the first cell of the grid. */
+  private final double originY;
+
+  /** The number of tiles in x direction. */
+  private final int tilesX;
+
+  /** The number of tiles in y direction. */
+  private final int tilesY;
+
+  /**
+   * The unscaled energy of all items in tiles of {@link #TILE_SIZE} squared
+   * cells. Tiles without energy are <code>null</code>. The field is created
+   * on first use. Guarded by this.
+   */
+  private double[][] tiles;
+
+  /**
+   * Creates a scene.
+   * 
+   * @param bubbleSet The bubble set whose configuration is used. Its route
+   *          cache is used as well.
+   * @param groups The members of each group.
+   * @param lines The lines guiding the outline of each group. The array and
+   *          its entries may be <code>null</code>.
+   */
+  public BubbleSetScene(final BubbleSet bubbleSet,
+      final Rectangle2D[][] groups, final Line2D[][] lines) {
+    if(bubbleSet == null) throw new NullPointerException("bubbleSet");
+    if(lines != null && lines.length != groups.length) {
+      throw new IllegalArgumentException("lines: " + lines.length
+          + " groups: " + groups.length);
+    }
+    this.bubbleSet = bubbleSet;
+    configuration = bubbleSet.getConfiguration();
+    this.groups = new Rectangle2D[groups.length][];
+    this.lines = new Line2D[groups.length][];
+    Rectangle2D bounds = null;
+    for(int g = 0; g < groups.length; ++g) {
+      this.groups[g] = groups[g].clone();
+      for(final Rectangle2D r : groups[g]) {
+        if(bounds == null) {
+          bounds = (Rectangle2D) r.getBounds2D().clone();
+        } else {
+          bounds.add(r);
+        }
+      }
+      if(lines != null && lines[g] != null) {
+        this.lines[g] = lines[g].clone();
+      }
+    }
+    index = new SceneIndex(this.groups);
+    final int pixelGroup = configuration.getPixelGroup();
+    final double r1 = configuration.getNodeR1();
+    if(bounds == null) {
+      bounds = new Rectangle2D.Double();
+    }
+    originX = Math.floor((bounds.getMinX() - r1) / pixelGroup) * pixelGroup;
+    originY = Math.floor((bounds.getMinY() - r1) / pixelGroup) * pixelGroup;
+    final int cellsX =
+        (int) Math.ceil((bounds.getMaxX() + r1 - originX) / pixelGroup) + 1;
+    final int cellsY =
+        (int) Math.ceil((bounds.getMaxY() + r1 - originY) / pixelGroup) + 1;
+    tilesX = (cellsX + TILE_SIZE - 1) >> TILE_BITS;
+    tilesY = (cellsY + TILE_SIZE - 1) >> TILE_BITS;
+  }
+
+  /**
+   * Creates a scene.
+   * 
+   * @param bubbleSet The bubble set whose configuration is used. Its route
+   *          cache is used as well.
+   * @param groups The groups.
+   */
+  public BubbleSetScene(final BubbleSet bubbleSet,
+      final Collection<Group> groups) {
+    this(bubbleSet, getRects(groups), getLines(groups));
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param groups The groups.
+   * @return The members of each group.
+   */
+  private static Rectangle2D[][] getRects(final Collection<Group> groups) {
+    final Rectangle2D[][] res = new Rectangle2D[groups.size()][];
+    int i = 0;
+    for(final Group g : groups) {
+      res[i++] = g.rects;
+    }
+    return res;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param groups The groups.
+   * @return The lines of each group.
+   */
+  private static Line2D[][] getLines(final Collection<Group> groups) {
+    final Line2D[][] res = new Line2D[groups.size()][];
+    int i = 0;
+    for(final Group g : groups) {
+      res[i++] = g.lines;
+    }
+    return res;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of groups.
+   */
+  public int getGroupCount() {
+    return groups.length;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The configuration the scene was created with.
+   */
+  public BubbleSetConfiguration getConfiguration() {
+    return configuration;
+  }
+
+  /**
+   * Calculates the outlines of all groups.
+   * 
+   * @return The vertices of the outline of each group.
+   */
+  public Point2D[][] createOutlines() {
+    final Point2D[][] res = new Point2D[groups.length][];
+    for(int g = 0; g < groups.length; ++g) {
+      res[g] = createOutline(g);
+    }
+    return res;
+  }
+
+  /**
+   * Calculates the outline of one group.
+   * 
+   * @param group The group.
+   * @return The vertices of the outline.
+   */
+  public Point2D[] createOutline(final int group) {
+    final Rectangle2D[] members = groups[group];
+    if(members.length == 0) return new Point2D[0];
+    BubbleSet.checkCancelled();
+    final double[][] shared = getTiles();
+    final Rectangle2D[] nonMembers = getNonMembers(group);
+
+    final OutlineContext ctx = new OutlineContext(configuration);
+    bubbleSet.prepare(ctx, members, nonMembers, lines[group]);
+    BubbleSet.checkCancelled();
+    final int pixelGroup = configuration.getPixelGroup();
+    // align the active region with the grid of the scene
+    final Rectangle2D region = ctx.activeRegion;
+    final int offX =
+        (int) Math.floor((region.getMinX() - originX) / pixelGroup);
+    final int offY =
+        (int) Math.floor((region.getMinY() - originY) / pixelGroup);
+    final double minX = originX + offX * (double) pixelGroup;
+    final double minY = originY + offY * (double) pixelGroup;
+    region.setRect(minX, minY, region.getMaxX() - minX, region.getMaxY()
+        - minY);
+    ctx.potentialArea = BubbleSet.createPotentialArea(ctx);
+    final int w = ctx.potentialArea.length;
+    final int h = w > 0 ? ctx.potentialArea[0].length : 0;
+
+    final double[][] own = new double[w][h];
+    for(final Rectangle2D r : members) {
+      addKernel(own, minX, minY, r);
+    }
+    final double[][] others = new double[w][h];
+    for(int x = 0; x < w; ++x) {
+      BubbleSet.checkCancelled();
+      for(int y = 0; y < h; ++y) {
+        others[x][y] = get(shared, offX + x, offY + y) - own[x][y];
+      }
+    }
+    final double[][] edges = new double[w][h];
+    if(!ctx.virtualEdges.isEmpty() && w > 0 && h > 0) {
+      final double edgeRDiff =
+          configuration.getEdgeR0() - configuration.getEdgeR1();
+      BubbleSet.calculateLinesInfluence(edges, pixelGroup,
+          1 / (edgeRDiff * edgeRDiff), configuration.getEdgeR1(),
+          ctx.virtualEdges, region, null);
+    }
+
+    final EnergySource source = new EnergySource() {
+
+      @Override
+      public void addEnergy(final OutlineContext c) {
+        final double[][] field = c.potentialArea;
+        final double node = c.nodeInfluenceFactor;
+        final double edge = c.edgeInfluenceFactor;
+        final double negative = c.negativeNodeInfluenceFactor;
+        for(int x = 0; x < field.length; ++x) {
+          BubbleSet.checkCancelled();
+          final double[] col = field[x];
+          final double[] o = own[x];
+          final double[] n = others[x];
+          final double[] e = edges[x];
+          for(int y = 0; y < col.length; ++y) {
+            double v = col[y] + node * o[y] + edge * e[y];
+            // negative energy only reduces positive energy
+            if(v > 0) {
+              v += negative * n[y];
+            }
+            col[y] = v;
+          }
+        }
+      }
+
+    };
+    source.addEnergy(ctx);
+    return BubbleSet.traceOutline(ctx, source, members, nonMembers, false);
+  }
+
+  /**
+   * Finds the non-members that may influence the outline of a group.
+   * 
+   * @param group The group.
+   * @return The non-members in scene order.
+   */
+  private Rectangle2D[] getNonMembers(final int group) {
+    final Rectangle2D[] members = groups[group];
+    final Rectangle2D region = (Rectangle2D) members[0].getBounds2D().clone();
+    for(final Rectangle2D r : members) {
+      region.add(r);
+    }
+    final double grow = bubbleSet.getNonMemberMargin();
+    region.setRect(region.getX() - grow, region.getY() - grow,
+        region.getWidth() + 2.0 * grow, region.getHeight() + 2.0 * grow);
+    return index.getNonMembers(group, region);
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The shared energy field of all items. It is created on the first
+   *         call.
+   */
+  private synchronized double[][] getTiles() {
+    if(tiles == null) {
+      final double[][] res = new double[tilesX * tilesY][];
+      for(final Rectangle2D[] group : groups) {
+        for(final Rectangle2D r : group) {
+          BubbleSet.checkCancelled();
+          addKernel(res, r);
+        }
+      }
+      tiles = res;
+    }
+    return tiles;
+  }
+
+  /**
+   * Looks up the shared energy of a cell.
+   * 
+   * @param shared The shared field.
+   * @param x The x coordinate of the cell in the grid of the scene.
+   * @param y The y coordinate of the cell in the grid of the scene.
+   * @return The energy or <code>0</code> if the cell is outside of the field.
+   */
+  private double get(final double[][] shared, final int x, final int y) {
+    if(x < 0 || y < 0) return 0;
+    final int tx = x >> TILE_BITS;
+    final int ty = y >> TILE_BITS;
+    if(tx >= tilesX || ty >= tilesY) return 0;
+    final double[] tile = shared[tx * tilesY + ty];
+    if(tile == null) return 0;
+    return tile[((x & (TILE_SIZE - 1)) << TILE_BITS) | (y & (TILE_SIZE - 1))];
+  }
+
+  /**
+   * Adds the unscaled energy of a rectangle to the shared field.
+   * 
+   * @param shared The shared field.
+   * @param r The rectangle.
+   */
+  private void addKernel(final double[][] shared, final Rectangle2D r) {
+    final int pixelGroup = configuration.getPixelGroup();
+    final double r1 = configuration.getNodeR1();
+    final double scale = getKernelScale();
+    final int startX = Math.max(0,
+        (int) Math.floor((r.getMinX() - r1 - originX) / pixelGroup));
+    final int startY = Math.max(0,
+        (int) Math.floor((r.getMinY() - r1 - originY) / pixelGroup));
+    final int endX = Math.min(tilesX << TILE_BITS,
+        (int) Math.ceil((r.getMaxX() + r1 - originX) / pixelGroup) + 1);
+    final int endY = Math.min(tilesY << TILE_BITS,
+        (int) Math.ceil((r.getMaxY() + r1 - originY) / pixelGroup) + 1);
+    for(int x = startX; x < endX; ++x) {
+      final double px = originX + x * (double) pixelGroup;
+      for(int y = startY; y < endY; ++y) {
+        final double py = originY + y * (double) pixelGroup;
+        final double dr = distance(r, px, py) - r1;
+        if(dr >= 0) {
+          continue;
+        }
+        final int t = (x >> TILE_BITS) * tilesY + (y >> TILE_BITS);
+        if(shared[t] == null) {
+          shared[t] = new double[TILE_SIZE * TILE_SIZE];
+        }
+        shared[t][((x & (TILE_SIZE - 1)) << TILE_BITS)
+            | (y & (TILE_SIZE - 1))] += scale * dr * dr;
+      }
+    }
+  }
+
+  /**
+   * Adds the unscaled energy of a rectangle to the field of a group.
+   * 
+   * @param field The field of the group.
+   * @param minX The x coordinate of the first cell of the field.
+   * @param minY The y coordinate of the first cell of the field.
+   * @param r The rectangle.
+   */
+  private void addKernel(final double[][] field, final double minX,
+      final double minY, final Rectangle2D r) {
+    final int pixelGroup = configuration.getPixelGroup();
+    final double r1 = configuration.getNodeR1();
+    final double scale = getKernelScale();
+    final int w = field.length;
+    final int h = w > 0 ? field[0].length : 0;
+    final int startX =
+        Math.max(0, (int) Math.floor((r.getMinX() - r1 - minX) / pixelGroup));
+    final int startY =
+        Math.max(0, (int) Math.floor((r.getMinY() - r1 - minY) / pixelGroup));
+    final int endX = Math.min(w,
+        (int) Math.ceil((r.getMaxX() + r1 - minX) / pixelGroup) + 1);
+    final int endY = Math.min(h,
+        (int) Math.ceil((r.getMaxY() + r1 - minY) / pixelGroup) + 1);
+    for(int x = startX; x < endX; ++x) {
+      final double px = minX + x * (double) pixelGroup;
+      for(int y = startY; y < endY; ++y) {
+        final double py = minY + y * (double) pixelGroup;
+        final double dr = distance(r, px, py) - r1;
+        if(dr < 0) {
+          field[x][y] += scale * dr * dr;
+        }
+      }
+    }
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The factor of the energy of a rectangle without the influence
+   *         factor.
+   */
+  private double getKernelScale() {
+    final double nodeRDiff =
+        configuration.getNodeR0() - configuration.getNodeR1();
+    return 1 / (nodeRDiff * nodeRDiff);
+  }
+
+  /**
+   * Calculates the distance of a point to a rectangle.
+   * 
+   * @param r The rectangle.
+   * @param x The x coordinate of the point.
+   * @param y The y coordinate of the point.
+   * @return The distance or <code>0</code> if the point is inside.
+   */
+  private static double distance(final Rectangle2D r, final double x,
+      final double y) {
+    final double dx = Math.max(Math.max(r.getMinX() - x, x - r.getMaxX()), 0);
+    final double dy = Math.max(Math.max(r.getMinY() - y, y - r.getMaxY()), 0);
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+
+}
@@ -0,0 +1,487 @@
+package setvis.bubbleset;
+
+import java.awt.Rectangle;
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import setvis.bubbleset.BubbleSet.Item;
+
+/**
+ * Incrementally updates the outline of one set. The session keeps the energy
+ * field of the last calculation. When rectangles are added, moved, or removed
+ * only the parts of the field around the changes are filled in again. Virtual
+ * edges are recalculated but their routes are taken from the route cache of
+ * the {@link BubbleSet} if their surroundings did not change. The outline is
+ * the same as the one of
+ * {@link BubbleSet#createOutline(Rectangle2D[], Rectangle2D[])} with the
+ * current members and non-members. When the active region changes the field is
+ * filled in completely. A session must not be used by multiple threads at the
+ * same time.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+public final class BubbleSetSession {
+
+  /**
+   * A virtual edge that can be compared by its end points.
+   * 
+   * @author Joschi <josua.krause@googlemail.com>
+   */
+  private static final class Edge {
+
+    /** The line. */
+    final Line2D line;
+
+    /**
+     * Creates an edge.
+     * 
+     * @param line The line.
+     */
+    public Edge(final Line2D line) {
+      this.line = line;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if(this == obj) return true;
+      if(!(obj instanceof Edge)) return false;
+      final Line2D o = ((Edge) obj).line;
+      return line.getX1() == o.getX1() && line.getY1() == o.getY1()
+          && line.getX2() == o.getX2() && line.getY2() == o.getY2();
+    }
+
+    @Override
+    public int hashCode() {
+      long bits = Double.doubleToLongBits(line.getX1());
+      bits = bits * 31 + Double.doubleToLongBits(line.getY1());
+      bits = bits * 31 + Double.doubleToLongBits(line.getX2());
+      bits = bits * 31 + Double.doubleToLongBits(line.getY2());
+      return (int) (bits ^ (bits >>> 32));
+    }
+
+  }
+
+  /** The bubble set calculating the outline. */
+  private final BubbleSet bubbleSet;
+
+  /** The members in the order they were added. */
+  private final List<Rectangle2D> members = new ArrayList<Rectangle2D>();
+
+  /** The non-members in the order they were added. */
+  private final List<Rectangle2D> nonMembers = new ArrayList<Rectangle2D>();
+
+  /**
+   * The bounds of all rectangles at the time they were last reported. The
+   * calculation only uses these copies.
+   */
+  private final Map<Rectangle2D, Rectangle2D> bounds =
+      new IdentityHashMap<Rectangle2D, Rectangle2D>();
+
+  /** The bounds of the rectangles that changed since the last calculation. */
+  private final List<Rectangle2D> changed = new ArrayList<Rectangle2D>();
+
+  /** The configuration used for the energy field. */
+  private BubbleSetConfiguration configuration;
+
+  /** The energy field of the last calculation without any adjustments. */
+  private double[][] potentialArea;
+
+  /** The active region of the last calculation. */
+  private Rectangle2D activeRegion;
+
+  /** The members of the last calculation in the order they were connected. */
+  private Rectangle2D[] order;
+
+  /** The virtual edges of the last calculation. */
+  private Line2D[] virtualEdges;
+
+  /** The last outline or <code>null</code> if it needs to be calculated. */
+  private Point2D[] outline;
+
+  /**
+   * Creates a session.
+   * 
+   * @param bubbleSet The bubble set calculating the outline.
+   * @param members The initial members.
+   * @param nonMembers The initial non-members.
+   */
+  BubbleSetSession(final BubbleSet bubbleSet, final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers) {
+    this.bubbleSet = bubbleSet;
+    for(final Rectangle2D r : members) {
+      add(this.members, r);
+    }
+    for(final Rectangle2D r : nonMembers) {
+      add(this.nonMembers, r);
+    }
+  }
+
+  /**
+   * Adds a member.
+   * 
+   * @param member The rectangle to include.
+   */
+  public void addMember(final Rectangle2D member) {
+    add(members, member);
+  }
+
+  /**
+   * Tells the session that a member has been moved or resized.
+   * 
+   * @param member The changed rectangle.
+   */
+  public void moveMember(final Rectangle2D member) {
+    move(members, member);
+  }
+
+  /**
+   * Removes a member.
+   * 
+   * @param member The rectangle to remove.
+   */
+  public void removeMember(final Rectangle2D member) {
+    remove(members, member);
+  }
+
+  /**
+   * Adds a non-member.
+   * 
+   * @param nonMember The rectangle to avoid.
+   */
+  public void addNonMember(final Rectangle2D nonMember) {
+    add(nonMembers, nonMember);
+  }
+
+  /**
+   * Tells the session that a non-member has been moved or resized.
+   * 
+   * @param nonMember The changed rectangle.
+   */
+  public void moveNonMember(final Rectangle2D nonMember) {
+    move(nonMembers, nonMember);
+  }
+
+  /**
+   * Removes a non-member.
+   * 
+   * @param nonMember The rectangle to remove.
+   */
+  public void removeNonMember(final Rectangle2D nonMember) {
+    remove(nonMembers, nonMember);
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The current members.
+   */
+  public Rectangle2D[] getMembers() {
+    return members.toArray(new Rectangle2D[members.size()]);
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The current non-members.
+   */
+  public Rectangle2D[] getNonMembers() {
+    return nonMembers.toArray(new Rectangle2D[nonMembers.size()]);
+  }
+
+  /**
+   * Adds a rectangle.
+   * 
+   * @param list The list to add the rectangle to.
+   * @param r The rectangle.
+   */
+  private void add(final List<Rectangle2D> list, final Rectangle2D r) {
+    if(r == null) throw new NullPointerException("r");
+    if(bounds.containsKey(r)) throw new IllegalArgumentException(
+        "rectangle already in session: " + r);
+    final Rectangle2D b = (Rectangle2D) r.clone();
+    bounds.put(r, b);
+    list.add(r);
+    changed.add((Rectangle2D) b.clone());
+    outline = null;
+  }
+
+  /**
+   * Updates the bounds of a rectangle.
+   * 
+   * @param list The list containing the rectangle.
+   * @param r The rectangle.
+   */
+  private void move(final List<Rectangle2D> list, final Rectangle2D r) {
+    final Rectangle2D b = bounds.get(r);
+    if(b == null || indexOf(list, r) < 0) throw new IllegalArgumentException(
+        "rectangle not in session: " + r);
+    changed.add((Rectangle2D) b.clone());
+    b.setRect(r);
+    changed.add((Rectangle2D) b.clone());
+    outline = null;
+  }
+
+  /**
+   * Removes a rectangle.
+   * 
+   * @param list The list containing the rectangle.
+   * @param r The rectangle.
+   */
+  private void remove(final List<Rectangle2D> list, final Rectangle2D r) {
+    final int index = indexOf(list, r);
+    if(index < 0) throw new IllegalArgumentException(
+        "rectangle not in session: " + r);
+    list.remove(index);
+    changed.add(bounds.remove(r));
+    outline = null;
+  }
+
+  /**
+   * Finds a rectangle by identity.
+   * 
+   * @param list The list to search.
+   * @param r The rectangle.
+   * @return The index or <code>-1</code> if the rectangle is not in the list.
+   */
+  private static int indexOf(final List<Rectangle2D> list, final Rectangle2D r) {
+    for(int i = 0; i < list.size(); ++i) {
+      if(list.get(i) == r) return i;
+    }
+    return -1;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param list The rectangles.
+   * @return The bounds used for the calculation in the same order.
+   */
+  private Rectangle2D[] getBounds(final List<Rectangle2D> list) {
+    final Rectangle2D[] res = new Rectangle2D[list.size()];
+    for(int i = 0; i < res.length; ++i) {
+      res[i] = bounds.get(list.get(i));
+    }
+    return res;
+  }
+
+  /**
+   * Returns the outline of the current members and non-members. The outline
+   * is only calculated again when something has changed.
+   * 
+   * @return The vertices of the outline.
+   * @throws java.util.concurrent.CancellationException if the current thread
+   *           is interrupted during the calculation. The session stays usable.
+   */
+  public Point2D[] getOutline() {
+    if(outline == null) {
+      outline = update();
+    }
+    final Point2D[] res = new Point2D[outline.length];
+    for(int i = 0; i < res.length; ++i) {
+      res[i] = (Point2D) outline[i].clone();
+    }
+    return res;
+  }
+
+  /**
+   * Calculates the outline and updates the energy field.
+   * 
+   * @return The outline.
+   */
+  private Point2D[] update() {
+    final Rectangle2D[] m = getBounds(members);
+    final Rectangle2D[] n = getBounds(nonMembers);
+    if(m.length == 0) {
+      configuration = null;
+      potentialArea = null;
+      activeRegion = null;
+      order = null;
+      virtualEdges = null;
+      changed.clear();
+      return new Point2D[0];
+    }
+    final OutlineContext ctx = new OutlineContext(bubbleSet.getConfiguration());
+    final BubbleSetConfiguration cfg = ctx.configuration;
+    final Item[] items = bubbleSet.prepare(ctx, m, n, null);
+    final Rectangle2D[] newOrder = new Rectangle2D[items.length];
+    for(int i = 0; i < items.length; ++i) {
+      newOrder[i] = items[i].rectangle;
+    }
+    final Line2D[] newEdges =
+        ctx.virtualEdges.toArray(new Line2D[ctx.virtualEdges.size()]);
+    if(potentialArea == null || !cfg.equals(configuration)
+        || !ctx.activeRegion.equals(activeRegion)) {
+      // drop the old field first in case the calculation is cancelled
+      potentialArea = null;
+      ctx.potentialArea = BubbleSet.createPotentialArea(ctx);
+      BubbleSet.fillPotentialArea(ctx, items, n, null);
+    } else {
+      ctx.potentialArea = potentialArea;
+      // the field is inconsistent until all regions are filled in again
+      potentialArea = null;
+      final double nodeR1 = cfg.getNodeR1();
+      final List<Rectangle2D> regions = new ArrayList<Rectangle2D>();
+      for(final Rectangle2D r : changed) {
+        regions.add(grow(r, nodeR1));
+      }
+      addReordered(regions, order, newOrder, nodeR1);
+      addChangedEdges(regions, virtualEdges, newEdges, cfg.getEdgeR1());
+      for(final Rectangle2D r : regions) {
+        final Rectangle cells = getCells(ctx, r);
+        if(cells == null) {
+          continue;
+        }
+        // the contributions are added again in the original order
+        for(int x = cells.x; x < cells.x + cells.width; ++x) {
+          final double[] column = ctx.potentialArea[x];
+          for(int y = cells.y; y < cells.y + cells.height; ++y) {
+            column[y] = 0;
+          }
+        }
+        BubbleSet.fillPotentialArea(ctx, items, n, cells);
+      }
+    }
+    configuration = cfg;
+    potentialArea = ctx.potentialArea;
+    activeRegion = ctx.activeRegion;
+    order = newOrder;
+    virtualEdges = newEdges;
+    changed.clear();
+    return BubbleSet.traceOutline(ctx, BubbleSet.createItemSource(items, n),
+        m, n, true);
+  }
+
+  /**
+   * Enlarges a rectangle.
+   * 
+   * @param r The rectangle.
+   * @param by The amount to add on every side.
+   * @return The enlarged rectangle.
+   */
+  private static Rectangle2D grow(final Rectangle2D r, final double by) {
+    return new Rectangle2D.Double(r.getX() - by, r.getY() - by, r.getWidth()
+        + 2 * by, r.getHeight() + 2 * by);
+  }
+
+  /**
+   * Adds the regions of members whose position in the connection order has
+   * changed. The energy of overlapping members is summed up in this order.
+   * 
+   * @param regions The list of regions to fill again.
+   * @param oldOrder The previous order.
+   * @param newOrder The current order.
+   * @param r1 The influence radius of members.
+   */
+  private static void addReordered(final List<Rectangle2D> regions,
+      final Rectangle2D[] oldOrder, final Rectangle2D[] newOrder,
+      final double r1) {
+    final Set<Rectangle2D> oldSet = identitySet(oldOrder);
+    final Set<Rectangle2D> newSet = identitySet(newOrder);
+    final List<Rectangle2D> a = new ArrayList<Rectangle2D>();
+    for(final Rectangle2D r : oldOrder) {
+      if(newSet.contains(r)) {
+        a.add(r);
+      }
+    }
+    final List<Rectangle2D> b = new ArrayList<Rectangle2D>();
+    for(final Rectangle2D r : newOrder) {
+      if(oldSet.contains(r)) {
+        b.add(r);
+      }
+    }
+    int first = 0;
+    while(first < a.size() && a.get(first) == b.get(first)) {
+      ++first;
+    }
+    int last = a.size() - 1;
+    while(last > first && a.get(last) == b.get(last)) {
+      --last;
+    }
+    // only members between the first and the last difference swapped places
+    for(int i = first; i <= last; ++i) {
+      regions.add(grow(a.get(i), r1));
+    }
+  }
+
+  /**
+   * Creates a set of rectangles compared by identity.
+   * 
+   * @param rects The rectangles.
+   * @return The set.
+   */
+  private static Set<Rectangle2D> identitySet(final Rectangle2D[] rects) {
+    final Map<Rectangle2D, Boolean> map =
+        new IdentityHashMap<Rectangle2D, Boolean>();
+    for(final Rectangle2D r : rects) {
+      map.put(r, Boolean.TRUE);
+    }
+    return map.keySet();
+  }
+
+  /**
+   * Adds the regions of virtual edges that were removed or added.
+   * 
+   * @param regions The list of regions to fill again.
+   * @param oldEdges The previous edges.
+   * @param newEdges The current edges.
+   * @param r1 The influence radius of edges.
+   */
+  private static void addChangedEdges(final List<Rectangle2D> regions,
+      final Line2D[] oldEdges, final Line2D[] newEdges, final double r1) {
+    final Set<Edge> oldSet = new HashSet<Edge>();
+    for(final Line2D l : oldEdges) {
+      oldSet.add(new Edge(l));
+    }
+    final Set<Edge> newSet = new HashSet<Edge>();
+    for(final Line2D l : newEdges) {
+      newSet.add(new Edge(l));
+    }
+    for(final Edge e : oldSet) {
+      if(!newSet.contains(e)) {
+        regions.add(grow(e.line.getBounds2D(), r1));
+      }
+    }
+    for(final Edge e : newSet) {
+      if(!oldSet.contains(e)) {
+        regions.add(grow(e.line.getBounds2D(), r1));
+      }
+    }
+  }
+
+  /**
+   * Computes the cells of the energy field covering the given region. One
+   * additional cell on every side accounts for rounding.
+   * 
+   * @param ctx The context of the calculation.
+   * @param r The region in screen coordinates.
+   * @return The cells or <code>null</code> if the region is outside of the
+   *         field.
+   */
+  private static Rectangle getCells(final OutlineContext ctx,
+      final Rectangle2D r) {
+    final double[][] area = ctx.potentialArea;
+    final int pixelGroup = ctx.configuration.getPixelGroup();
+    final double ax = ctx.activeRegion.getX();
+    final double ay = ctx.activeRegion.getY();
+    final int x0 =
+        Math.max(0, (int) Math.floor((r.getMinX() - ax) / pixelGroup) - 1);
+    final int y0 =
+        Math.max(0, (int) Math.floor((r.getMinY() - ay) / pixelGroup) - 1);
+    final int x1 =
+        Math.min(area.length, (int) Math.ceil((r.getMaxX() - ax) / pixelGroup)
+            + 2);
+    final int y1 =
+        Math.min(area[0].length,
+            (int) Math.ceil((r.getMaxY() - ay) / pixelGroup) + 2);
+    if(x1 <= x0 || y1 <= y0) return null;
+    return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+  }
+
+}
@@ -0,0 +1,311 @@
+package setvis.bubbleset;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A contour traced by marching squares. Only the points where the contour
+ * changes its direction are stored. The points of the straight runs in between
+ * are computed when they are requested, so a contour needs memory for its
+ * corners only. The contour also remembers which cells it has visited.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+final class Contour {
+
+  /** The cell x coordinates of the first point of each run. */
+  private int[] xs = new int[16];
+
+  /** The cell y coordinates of the first point of each run. */
+  private int[] ys = new int[16];
+
+  /** The x distance between consecutive points of each run. */
+  private int[] dxs = new int[16];
+
+  /** The y distance between consecutive points of each run. */
+  private int[] dys = new int[16];
+
+  /** The index of the first point of each run. */
+  private int[] starts = new int[16];
+
+  /** The number of runs. */
+  private int runs;
+
+  /** The number of points. */
+  private int size;
+
+  /** The visited cells. */
+  private final BitSet visited = new BitSet();
+
+  /** The number of cells in a column of the field. */
+  private int height;
+
+  /** The size of a cell in pixels. */
+  private int step;
+
+  /** The run of the last lookup. */
+  private int cursor;
+
+  /** The cell x coordinates of the vertices while selecting points. */
+  private int[] vxs = new int[0];
+
+  /** The cell y coordinates of the vertices while selecting points. */
+  private int[] vys = new int[0];
+
+  /** The point indices of the vertices while selecting points. */
+  private int[] vis = new int[0];
+
+  /** The point indices of the selected points. */
+  private int[] selected = new int[0];
+
+  /**
+   * Removes all points.
+   * 
+   * @param step the size of a cell in pixels
+   * @param height the number of cells in a column of the field
+   */
+  public void reset(final int step, final int height) {
+    this.step = step;
+    this.height = height;
+    runs = 0;
+    size = 0;
+    cursor = 0;
+    visited.clear();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return the number of points
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Adds a point unless its cell has been visited before.
+   * 
+   * @param x the cell x coordinate
+   * @param y the cell y coordinate
+   * @return whether the point was added
+   */
+  public boolean add(final int x, final int y) {
+    final int cell = x * height + y;
+    if(visited.get(cell)) return false;
+    visited.set(cell);
+    if(runs > 0) {
+      final int r = runs - 1;
+      final int last = size - 1 - starts[r];
+      final int dx = x - (xs[r] + dxs[r] * last);
+      final int dy = y - (ys[r] + dys[r] * last);
+      if(last == 0) {
+        dxs[r] = dx;
+        dys[r] = dy;
+        ++size;
+        return true;
+      }
+      if(dx == dxs[r] && dy == dys[r]) {
+        ++size;
+        return true;
+      }
+    }
+    if(runs == xs.length) {
+      final int len = runs * 2;
+      xs = Arrays.copyOf(xs, len);
+      ys = Arrays.copyOf(ys, len);
+      dxs = Arrays.copyOf(dxs, len);
+      dys = Arrays.copyOf(dys, len);
+      starts = Arrays.copyOf(starts, len);
+    }
+    xs[runs] = x;
+    ys[runs] = y;
+    dxs[runs] = 0;
+    dys[runs] = 0;
+    starts[runs] = size;
+    ++runs;
+    ++size;
+    return true;
+  }
+
+  /**
+   * Checks whether a point is the first point of the contour.
+   * 
+   * @param x the cell x coordinate
+   * @param y the cell y coordinate
+   * @return whether the point is the first point
+   */
+  public boolean isStart(final int x, final int y) {
+    return size > 0 && xs[0] == x && ys[0] == y;
+  }
+
+  /**
+   * Finds the run containing a point.
+   * 
+   * @param i the index of the point
+   * @return the run
+   */
+  private int find(final int i) {
+    if(i < 0 || i >= size) throw new IndexOutOfBoundsException("index: " + i);
+    if(starts[cursor] <= i && (cursor + 1 == runs || starts[cursor + 1] > i)) {
+      return cursor;
+    }
+    final int pos = Arrays.binarySearch(starts, 0, runs, i);
+    cursor = pos >= 0 ? pos : -pos - 2;
+    return cursor;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param i the index of the point
+   * @return the x coordinate in pixels
+   */
+  public double getX(final int i) {
+    final int r = find(i);
+    return (float) (xs[r] + dxs[r] * (i - starts[r])) * step;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param i the index of the point
+   * @return the y coordinate in pixels
+   */
+  public double getY(final int i) {
+    final int r = find(i);
+    return (float) (ys[r] + dys[r] * (i - starts[r])) * step;
+  }
+
+  /**
+   * Selects the points of an outline that stays within the given distance of
+   * the contour. The contour is a polyline whose vertices are the first and
+   * the last point of each run, so only those are candidates and only those
+   * need to be checked. Each segment is extended greedily for as long as all
+   * vertices it covers are close enough. Every covered vertex narrows the
+   * directions a segment from the anchor may take, so the check takes constant
+   * time per vertex.
+   * 
+   * @param tolerance the maximal distance in pixels
+   * @return the number of selected points
+   * @see #getSelected(int)
+   */
+  public int select(final double tolerance) {
+    if(runs == 0) return 0;
+    if(vxs.length < runs * 2) {
+      vxs = new int[runs * 2];
+      vys = new int[runs * 2];
+      vis = new int[runs * 2];
+      selected = new int[runs * 2];
+    }
+    int n = 0;
+    for(int r = 0; r < runs; ++r) {
+      vxs[n] = xs[r];
+      vys[n] = ys[r];
+      vis[n] = starts[r];
+      ++n;
+      final int last = (r + 1 < runs ? starts[r + 1] : size) - 1 - starts[r];
+      if(last > 0) {
+        vxs[n] = xs[r] + dxs[r] * last;
+        vys[n] = ys[r] + dys[r] * last;
+        vis[n] = starts[r] + last;
+        ++n;
+      }
+    }
+    final double tol = tolerance / step;
+    int count = 0;
+    int anchor = 0;
+    selected[count++] = vis[0];
+    // the directions relative to the first direction that pass all covered
+    // vertices closely enough and the distance of the farthest of them
+    boolean any = false;
+    double ref = 0;
+    double lo = 0;
+    double hi = 0;
+    double reach = 0;
+    // the candidate n closes the contour at the first vertex
+    for(int end = 1; end <= n; ++end) {
+      final double ex = vxs[end % n] - vxs[anchor];
+      final double ey = vys[end % n] - vys[anchor];
+      final double dist = Math.sqrt(ex * ex + ey * ey);
+      if(end > anchor + 1 && any) {
+        final double dir = relative(Math.atan2(ey, ex), ref);
+        if(dir < lo || dir > hi || dist < reach) {
+          anchor = end - 1;
+          selected[count++] = vis[anchor];
+          any = false;
+          reach = 0;
+          if(end == n) {
+            break;
+          }
+          // the vertex is added relative to the new anchor
+          --end;
+          continue;
+        }
+      }
+      // vertices within the tolerance of the anchor are passed by any segment
+      if(end == n || dist <= tol) {
+        continue;
+      }
+      final double center = Math.atan2(ey, ex);
+      final double width = Math.asin(tol / dist);
+      if(!any) {
+        any = true;
+        ref = center;
+        lo = -width;
+        hi = width;
+      } else {
+        final double c = relative(center, ref);
+        lo = Math.max(lo, c - width);
+        hi = Math.min(hi, c + width);
+      }
+      reach = Math.max(reach, dist);
+    }
+    return count;
+  }
+
+  /**
+   * Computes the difference of two angles.
+   * 
+   * @param angle the angle
+   * @param ref the reference angle
+   * @return the difference between <code>-PI</code> and <code>PI</code>
+   */
+  private static double relative(final double angle, final double ref) {
+    double res = angle - ref;
+    if(res > Math.PI) {
+      res -= 2 * Math.PI;
+    } else if(res <= -Math.PI) {
+      res += 2 * Math.PI;
+    }
+    return res;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param k the number of the selected point
+   * @return the index of the selected point
+   * @see #select(double)
+   */
+  public int getSelected(final int k) {
+    return selected[k];
+  }
+
+  /**
+   * Adds all points to a list.
+   * 
+   * @param list the list
+   */
+  public void addTo(final List<Point2D> list) {
+    for(int r = 0; r < runs; ++r) {
+      final int end = r + 1 < runs ? starts[r + 1] : size;
+      for(int k = 0; k < end - starts[r]; ++k) {
+        list.add(new Point2D.Float((float) (xs[r] + dxs[r] * k) * step,
+            (float) (ys[r] + dys[r] * k) * step));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,20 @@
+package setvis.bubbleset;
+
+/**
+ * Adds the energy of one pass to the field of a calculation. Each pass uses
+ * the current influence factors of the context.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+interface EnergySource {
+
+  /**
+   * Adds the energy of the members, the virtual edges, and the non-members to
+   * the energy field of the context. Negative energy is only added where the
+   * field is positive.
+   * 
+   * @param ctx the context of the calculation
+   */
+  void addEnergy(OutlineContext ctx);
+
+}
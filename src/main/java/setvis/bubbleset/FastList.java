@@ -23,7 +23,10 @@ import java.util.Set;
  * 
  * @author Joschi <josua.krause@googlemail.com>
  * @param <E> The type parameter.
+ * @deprecated Bubble sets store their contours compactly and no longer use
+ *             this list.
  */
+@Deprecated
 public final class FastList<E> extends ArrayList<E> {
 
   /** The serial version uid. */
@@ -18,13 +18,9 @@ public final class MarchingSquares {
     N, S, E, W
   }
 
-  // the direction of movement for marching squares
-  private static Direction direction;
-
-  private static double threshold;
-
   /**
-   * Calculates the contour of the potential area.
+   * Calculates the contour of the potential area. The points are appended to
+   * the list.
    * 
    * @param contour The resulting contour.
    * @param potentialArea The potential area.
@@ -34,21 +30,36 @@ public final class MarchingSquares {
    */
   public static boolean calculateContour(final ArrayList<Point2D> contour,
       final double[][] potentialArea, final int step, final double t) {
+    final Contour c = new Contour();
+    final boolean marched = calculateContour(c, potentialArea, step, t);
+    contour.ensureCapacity(contour.size() + c.size());
+    c.addTo(contour);
+    return marched;
+  }
+
+  /**
+   * Calculates the contour of the potential area. Previous points of the
+   * contour are removed.
+   * 
+   * @param contour The resulting contour.
+   * @param potentialArea The potential area.
+   * @param step the resolution of the calculation in pixels
+   * @param t the threshold
+   * @return true iff a continuous contour is found
+   */
+  static boolean calculateContour(final Contour contour,
+      final double[][] potentialArea, final int step, final double t) {
+    contour.reset(step,
+        potentialArea.length > 0 ? potentialArea[0].length : 0);
     // find a first point on the contour
     boolean marched = false;
 
-    // set starting direction for conditional states (6 & 9)
-    direction = Direction.S;
-
-    // set the threshold
-    threshold = t;
-
     for(int x = 0; x < potentialArea.length && !marched; x++) {
       final double[] potLine = potentialArea[x];
       for(int y = 0; y < potLine.length && !marched; y++) {
         // check invalid state condition
-        if(test(potLine[y]) && getState(potentialArea, x, y) != 15) {
-          marched = march(contour, potentialArea, x, y, step);
+        if(test(potLine[y], t) && getState(potentialArea, x, y, t) != 15) {
+          marched = march(contour, potentialArea, x, y, t);
         }
       }
     }
@@ -63,36 +74,32 @@ public final class MarchingSquares {
    * @param potentialArea the area, filled with potential values
    * @param xpos the current x-position in the area
    * @param ypos the current y-position in the area
-   * @param step the resolution of the calculation in pixels
+   * @param threshold the threshold
    * @return true iff a continuous contour is found
    */
-  private static boolean march(final ArrayList<Point2D> contour,
+  private static boolean march(final Contour contour,
       final double[][] potentialArea, final int xpos, final int ypos,
-      final int step) {
+      final double threshold) {
+    // the direction of movement for marching squares
+    // starting direction for conditional states (6 & 9)
+    Direction direction = Direction.S;
     int x = xpos;
     int y = ypos;
+    int steps = 0;
     for(;;) { // iterative version of the end recursion
-      final Point2D p = new Point2D.Float((float) x * step, (float) y
-          * step);
-
-      // check if we're back where we started
-      if(contour.contains(p)) {
-        if(!contour.get(0).equals(p)) {
-          // encountered a loop but haven't returned to start; will
-          // change
-          // direction using conditionals and continue
-        } else // back to start
-        return true;
-      } else {
-        contour.add(p);
+      if((++steps & 0x3ff) == 0) {
+        BubbleSet.checkCancelled();
       }
-
-      final int state = getState(potentialArea, x, y);
+      final int state = getState(potentialArea, x, y, threshold);
       // x, y are upper left of 2X2 marching square
+      if(state == -1) throw new IllegalStateException("Marched out of bounds");
+
+      // check if we're back where we started
+      if(!contour.add(x, y) && contour.isStart(x, y)) return true;
+      // when we encountered a loop but haven't returned to start the
+      // conditionals change the direction and we continue
 
       switch(state) {
-        case -1:
-          throw new IllegalStateException("Marched out of bounds");
         case 0:
         case 3:
         case 2:
@@ -152,9 +159,10 @@ public final class MarchingSquares {
    * squares.
    * 
    * @param test the value to test
+   * @param threshold the threshold
    * @return whether the test value passes
    */
-  private static boolean test(final double test) {
+  private static boolean test(final double test, final double threshold) {
     return test > threshold;
   }
 
@@ -166,16 +174,17 @@ public final class MarchingSquares {
    * @param potentialArea the area filled with potential energy values
    * @param x the current x-position in the area
    * @param y the current y-position in the area
+   * @param threshold the threshold
    * @return an int value representing a marching squares state
    */
   private static int getState(final double[][] potentialArea,
-      final int x, final int y) {
+      final int x, final int y, final double threshold) {
     int dir = 0;
     try {
-      dir += test(potentialArea[x][y]) ? 1 << 0 : 0;
-      dir += test(potentialArea[x + 1][y]) ? 1 << 1 : 0;
-      dir += test(potentialArea[x][y + 1]) ? 1 << 2 : 0;
-      dir += test(potentialArea[x + 1][y + 1]) ? 1 << 3 : 0;
+      dir += test(potentialArea[x][y], threshold) ? 1 << 0 : 0;
+      dir += test(potentialArea[x + 1][y], threshold) ? 1 << 1 : 0;
+      dir += test(potentialArea[x][y + 1], threshold) ? 1 << 2 : 0;
+      dir += test(potentialArea[x + 1][y + 1], threshold) ? 1 << 3 : 0;
     } catch(final ArrayIndexOutOfBoundsException e) {
       System.err.println("Marched out of bounds: " + x + " " + y
           + " bounds: " + potentialArea.length + " "
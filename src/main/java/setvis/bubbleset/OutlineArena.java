@@ -0,0 +1,212 @@
+package setvis.bubbleset;
+
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import setvis.bubbleset.BubbleSet.Item;
+
+/**
+ * Scratch buffers that are reused by the calculations of one thread. A
+ * calculation acquires the arena of its thread, borrows buffers from it and
+ * releases it when it is done. Energy fields are reused when a field of the
+ * same size is needed, so repeated calculations of the same sets do not
+ * allocate new fields. When more cells than the capacity are kept the least
+ * recently used fields are dropped.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+final class OutlineArena {
+
+  /** The default number of field cells an arena keeps. */
+  public static final int DEFAULT_CAPACITY = 1 << 20;
+
+  /** The number of field cells an arena keeps. */
+  private static volatile int capacity = DEFAULT_CAPACITY;
+
+  /** The arena of each thread. */
+  private static final ThreadLocal<OutlineArena> ARENA =
+      new ThreadLocal<OutlineArena>() {
+
+        @Override
+        protected OutlineArena initialValue() {
+          return new OutlineArena();
+        }
+
+      };
+
+  /** The unused fields in least recently used order. */
+  private final ArrayList<double[][]> fields = new ArrayList<double[][]>();
+
+  /** The number of cells of the unused fields. */
+  private long cells;
+
+  /** Whether the arena is acquired by a calculation. */
+  private boolean inUse;
+
+  /** The contour. May be <code>null</code>. */
+  private Contour contour;
+
+  /** The path for containment tests. May be <code>null</code>. */
+  private Path2D path;
+
+  /** The member wrappers. */
+  private Item[] items = new Item[0];
+
+  /**
+   * Acquires the arena of the current thread. When it is already in use by an
+   * outer calculation a temporary arena is returned.
+   * 
+   * @return The arena. It must be released after the calculation.
+   */
+  public static OutlineArena acquire() {
+    final OutlineArena arena = ARENA.get();
+    if(arena.inUse) return new OutlineArena();
+    arena.inUse = true;
+    return arena;
+  }
+
+  /**
+   * Releases the arena. Fields exceeding the capacity are dropped.
+   */
+  public void release() {
+    inUse = false;
+    for(final Item item : items) {
+      if(item != null) {
+        item.rectangle = null;
+      }
+    }
+    trim(capacity);
+  }
+
+  /**
+   * Setter.
+   * 
+   * @param cells The number of field cells each arena keeps.
+   */
+  public static void setCapacity(final int cells) {
+    if(cells < 0) throw new IllegalArgumentException("cells: " + cells);
+    capacity = cells;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of field cells each arena keeps.
+   */
+  public static int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Drops all buffers of the arena of the current thread.
+   */
+  public static void clearCurrent() {
+    final OutlineArena arena = ARENA.get();
+    if(arena.inUse) return;
+    arena.trim(0);
+    arena.contour = null;
+    arena.path = null;
+    arena.items = new Item[0];
+  }
+
+  /**
+   * Drops the least recently used fields until at most the given number of
+   * cells is kept.
+   * 
+   * @param max The number of cells to keep.
+   */
+  private void trim(final long max) {
+    while(cells > max) {
+      cells -= size(fields.remove(0));
+    }
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param field The field.
+   * @return The number of cells of the field.
+   */
+  private static long size(final double[][] field) {
+    return field.length == 0 ? 0 : (long) field.length * field[0].length;
+  }
+
+  /**
+   * Borrows an empty field.
+   * 
+   * @param width The number of columns.
+   * @param height The number of rows.
+   * @return The field. All cells are zero.
+   */
+  public double[][] borrowField(final int width, final int height) {
+    for(int i = fields.size() - 1; i >= 0; --i) {
+      final double[][] field = fields.get(i);
+      if(field.length != width || (width > 0 && field[0].length != height)) {
+        continue;
+      }
+      fields.remove(i);
+      cells -= size(field);
+      for(final double[] col : field) {
+        Arrays.fill(col, 0);
+      }
+      return field;
+    }
+    return new double[width][height];
+  }
+
+  /**
+   * Returns a field that is no longer used.
+   * 
+   * @param field The field.
+   */
+  public void returnField(final double[][] field) {
+    if(field == null) return;
+    final long size = size(field);
+    if(size > capacity) return;
+    fields.add(field);
+    cells += size;
+  }
+
+  /**
+   * Borrows a contour. The contour can be used until the arena is released.
+   * 
+   * @return The contour.
+   */
+  public Contour borrowContour() {
+    if(contour == null) {
+      contour = new Contour();
+    }
+    return contour;
+  }
+
+  /**
+   * Borrows an empty path. The path can be used until the arena is released.
+   * 
+   * @return The path.
+   */
+  public Path2D borrowPath() {
+    if(path == null) {
+      path = new Path2D.Double();
+    } else {
+      path.reset();
+    }
+    return path;
+  }
+
+  /**
+   * Borrows the array of member wrappers. Entries from earlier calculations
+   * are kept and may be reused. The array can be used until the arena is
+   * released.
+   * 
+   * @param count The number of members.
+   * @return The array.
+   */
+  public Item[] borrowItems(final int count) {
+    if(items.length != count) {
+      items = new Item[count];
+    }
+    return items;
+  }
+
+}
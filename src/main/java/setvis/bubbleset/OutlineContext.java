@@ -0,0 +1,156 @@
+package setvis.bubbleset;
+
+import java.awt.Rectangle;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * The working state of a single bubble set calculation. Each call creates its
+ * own context so that one {@link BubbleSet} can be used by multiple threads at
+ * the same time.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+final class OutlineContext {
+
+  /** The default energy threshold for marching squares. */
+  public static final double DEFAULT_THRESHOLD = 1;
+
+  /** The default energy contribution for rectangles in the set. */
+  public static final double DEFAULT_NODE_INFLUENCE_FACTOR = 1;
+
+  /** The default energy contribution for virtual edges in the set. */
+  public static final double DEFAULT_EDGE_INFLUENCE_FACTOR = 1;
+
+  /** The default energy contribution for rectangles not in the set. */
+  public static final double DEFAULT_NEGATIVE_NODE_INFLUENCE_FACTOR = -0.8;
+
+  /** The parameters of the calculation. */
+  final BubbleSetConfiguration configuration;
+
+  /** The virtual edges connecting the members. */
+  final Deque<Line2D> virtualEdges = new ArrayDeque<Line2D>();
+
+  /**
+   * The array of energy values calculated over the active area.
+   */
+  double[][] potentialArea;
+
+  /**
+   * The bounds which contain all set members + a buffer, in screen coordinates.
+   * This bounding box is guaranteed to contain the bubble set.
+   */
+  Rectangle2D activeRegion;
+
+  /**
+   * The cells of the energy field that are filled or <code>null</code> if all
+   * cells are filled. A clipped field keeps a border of empty cells so that
+   * the contour can not leave the field.
+   */
+  Rectangle cells;
+
+  /**
+   * The energy threshold for marching squares.
+   */
+  double threshold = DEFAULT_THRESHOLD;
+
+  /**
+   * The energy contribution for rectangles in the set.
+   */
+  double nodeInfluenceFactor = DEFAULT_NODE_INFLUENCE_FACTOR;
+
+  /**
+   * The energy contribution for virtual edges in the set.
+   */
+  double edgeInfluenceFactor = DEFAULT_EDGE_INFLUENCE_FACTOR;
+
+  /**
+   * The energy contribution for rectangles not in the set.
+   */
+  double negativeNodeInfluenceFactor = DEFAULT_NEGATIVE_NODE_INFLUENCE_FACTOR;
+
+  /**
+   * The sum of the energy contributions for rectangles in the set of all
+   * passes that filled the energy field.
+   */
+  double nodeInfluenceSum;
+
+  /**
+   * The sum of the energy contributions for virtual edges in the set of all
+   * passes that filled the energy field.
+   */
+  double edgeInfluenceSum;
+
+  /**
+   * The sum of the energy contributions for rectangles not in the set of all
+   * passes that filled the energy field.
+   */
+  double negativeNodeInfluenceSum;
+
+  /**
+   * The number of adjustment passes whose energy is in the energy field.
+   */
+  int passes;
+
+  /**
+   * Whether the traced contour contains all members.
+   */
+  boolean converged;
+
+  /**
+   * Whether the traced contour contains a non-member.
+   */
+  boolean containsNonMember;
+
+  /**
+   * Whether the calculation stopped early because it ran out of time.
+   */
+  boolean degraded;
+
+  /**
+   * The scratch buffers of the calculation or <code>null</code> if buffers are
+   * allocated.
+   */
+  OutlineArena arena;
+
+  /** Whether {@link #deadline} is set. */
+  private boolean hasDeadline;
+
+  /** The {@link System#nanoTime()} when the calculation has to stop. */
+  private long deadline;
+
+  /**
+   * Creates a context for one calculation.
+   * 
+   * @param configuration The parameters of the calculation.
+   */
+  public OutlineContext(final BubbleSetConfiguration configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * Starts the time budget of the configuration. Without calling this method
+   * the calculation never runs out of time.
+   */
+  public void startClock() {
+    final long budget = configuration.getTimeBudget();
+    hasDeadline = budget > 0;
+    deadline = System.nanoTime() + budget;
+  }
+
+  /**
+   * Checks whether the time budget is used up. When this is the case the
+   * calculation is marked as degraded.
+   * 
+   * @return Whether the calculation has to stop.
+   */
+  public boolean isExpired() {
+    if(!hasDeadline) return false;
+    if(!degraded && System.nanoTime() - deadline < 0) return false;
+    degraded = true;
+    return true;
+  }
+
+}
@@ -0,0 +1,269 @@
+package setvis.bubbleset;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches the routes of virtual edges between multiple outline calculations. A
+ * route is identified by the centers of the two items it connects. It is only
+ * reused as long as the non-member rectangles intersecting its corridor, i.e.
+ * the region the routing algorithm has looked at, did not change. Routes that
+ * are not requested for a long time are evicted.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+final class RouteCache {
+
+  /**
+   * The key of a route.
+   * 
+   * @author Joschi <josua.krause@googlemail.com>
+   */
+  private static final class Key {
+
+    /** The x coordinate of the start point. */
+    private final double x1;
+
+    /** The y coordinate of the start point. */
+    private final double y1;
+
+    /** The x coordinate of the end point. */
+    private final double x2;
+
+    /** The y coordinate of the end point. */
+    private final double y2;
+
+    /** The distance the route keeps from obstacles. */
+    private final double morphBuffer;
+
+    /** The maximal number of routing iterations. */
+    private final int iterations;
+
+    /**
+     * Creates a key for the route between the given points.
+     * 
+     * @param x1 The x coordinate of the start point.
+     * @param y1 The y coordinate of the start point.
+     * @param x2 The x coordinate of the end point.
+     * @param y2 The y coordinate of the end point.
+     * @param morphBuffer The distance the route keeps from obstacles.
+     * @param iterations The maximal number of routing iterations.
+     */
+    public Key(final double x1, final double y1, final double x2,
+        final double y2, final double morphBuffer, final int iterations) {
+      this.x1 = x1;
+      this.y1 = y1;
+      this.x2 = x2;
+      this.y2 = y2;
+      this.morphBuffer = morphBuffer;
+      this.iterations = iterations;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if(this == obj) return true;
+      if(!(obj instanceof Key)) return false;
+      final Key k = (Key) obj;
+      return x1 == k.x1 && y1 == k.y1 && x2 == k.x2 && y2 == k.y2
+          && morphBuffer == k.morphBuffer && iterations == k.iterations;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Arrays.hashCode(new double[] { x1, y1, x2, y2, morphBuffer})
+          + iterations;
+    }
+
+  }
+
+  /**
+   * A cached route.
+   * 
+   * @author Joschi <josua.krause@googlemail.com>
+   */
+  private static final class Route {
+
+    /** The lines of the route. */
+    private final Line2D[] lines;
+
+    /** The minimal x coordinate of the corridor. */
+    private final double minX;
+
+    /** The minimal y coordinate of the corridor. */
+    private final double minY;
+
+    /** The maximal x coordinate of the corridor. */
+    private final double maxX;
+
+    /** The maximal y coordinate of the corridor. */
+    private final double maxY;
+
+    /**
+     * The obstacles within the corridor at the time of the routing in the
+     * order they appeared. Each obstacle takes four slots: x, y, width, and
+     * height.
+     */
+    private final double[] obstacles;
+
+    /**
+     * Creates a cached route.
+     * 
+     * @param lines The lines of the route.
+     * @param corridor The corridor of the route.
+     * @param nonMembers The non-members used for the routing.
+     */
+    public Route(final Collection<Line2D> lines, final Rectangle2D corridor,
+        final Rectangle2D[] nonMembers) {
+      this.lines = lines.toArray(new Line2D[lines.size()]);
+      minX = corridor.getMinX();
+      minY = corridor.getMinY();
+      maxX = corridor.getMaxX();
+      maxY = corridor.getMaxY();
+      int count = 0;
+      for(final Rectangle2D r : nonMembers) {
+        if(inCorridor(r)) {
+          ++count;
+        }
+      }
+      obstacles = new double[count * 4];
+      int pos = 0;
+      for(final Rectangle2D r : nonMembers) {
+        if(!inCorridor(r)) {
+          continue;
+        }
+        obstacles[pos++] = r.getX();
+        obstacles[pos++] = r.getY();
+        obstacles[pos++] = r.getWidth();
+        obstacles[pos++] = r.getHeight();
+      }
+    }
+
+    /**
+     * Whether the given rectangle touches the corridor. The borders of the
+     * corridor count as inside.
+     * 
+     * @param r The rectangle.
+     * @return Whether the rectangle touches the corridor.
+     */
+    private boolean inCorridor(final Rectangle2D r) {
+      return r.getMaxX() >= minX && r.getMinX() <= maxX
+          && r.getMaxY() >= minY && r.getMinY() <= maxY;
+    }
+
+    /**
+     * Checks whether the obstacles within the corridor are still the same.
+     * 
+     * @param nonMembers The current non-members.
+     * @return Whether the route can be reused.
+     */
+    public boolean isValid(final Rectangle2D[] nonMembers) {
+      int pos = 0;
+      for(final Rectangle2D r : nonMembers) {
+        if(!inCorridor(r)) {
+          continue;
+        }
+        if(pos >= obstacles.length || obstacles[pos] != r.getX()
+            || obstacles[pos + 1] != r.getY()
+            || obstacles[pos + 2] != r.getWidth()
+            || obstacles[pos + 3] != r.getHeight()) return false;
+        pos += 4;
+      }
+      return pos == obstacles.length;
+    }
+
+  }
+
+  /** The cached routes in least recently used order. Guarded by this. */
+  private final Map<Key, Route> routes;
+
+  /**
+   * Creates a route cache.
+   * 
+   * @param capacity The maximal number of routes to keep.
+   */
+  public RouteCache(final int capacity) {
+    routes = new LinkedHashMap<Key, Route>(16, 0.75f, true) {
+
+      /** The serial version uid. */
+      private static final long serialVersionUID = -2472012442093393442L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Key, Route> eldest) {
+        return size() > capacity;
+      }
+
+    };
+  }
+
+  /**
+   * Looks up a route. Routes whose corridor has changed are removed.
+   * 
+   * @param x1 The x coordinate of the start point.
+   * @param y1 The y coordinate of the start point.
+   * @param x2 The x coordinate of the end point.
+   * @param y2 The y coordinate of the end point.
+   * @param morphBuffer The distance the route keeps from obstacles.
+   * @param iterations The maximal number of routing iterations.
+   * @param nonMembers The current non-members.
+   * @return The lines of the route or <code>null</code> if there is no valid
+   *         route in the cache.
+   */
+  public synchronized Deque<Line2D> get(final double x1, final double y1,
+      final double x2, final double y2, final double morphBuffer,
+      final int iterations, final Rectangle2D[] nonMembers) {
+    final Key key = new Key(x1, y1, x2, y2, morphBuffer, iterations);
+    final Route route = routes.get(key);
+    if(route == null) return null;
+    if(!route.isValid(nonMembers)) {
+      routes.remove(key);
+      return null;
+    }
+    return new ArrayDeque<Line2D>(Arrays.asList(route.lines));
+  }
+
+  /**
+   * Stores a route.
+   * 
+   * @param x1 The x coordinate of the start point.
+   * @param y1 The y coordinate of the start point.
+   * @param x2 The x coordinate of the end point.
+   * @param y2 The y coordinate of the end point.
+   * @param morphBuffer The distance the route keeps from obstacles.
+   * @param iterations The maximal number of routing iterations.
+   * @param lines The lines of the route.
+   * @param corridor The region the routing algorithm has looked at.
+   * @param nonMembers The non-members used for the routing.
+   */
+  public void put(final double x1, final double y1, final double x2,
+      final double y2, final double morphBuffer, final int iterations,
+      final Collection<Line2D> lines, final Rectangle2D corridor,
+      final Rectangle2D[] nonMembers) {
+    final Route route = new Route(lines, corridor, nonMembers);
+    synchronized(this) {
+      routes.put(new Key(x1, y1, x2, y2, morphBuffer, iterations), route);
+    }
+  }
+
+  /**
+   * Removes all routes.
+   */
+  public synchronized void clear() {
+    routes.clear();
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of cached routes.
+   */
+  public synchronized int size() {
+    return routes.size();
+  }
+
+}
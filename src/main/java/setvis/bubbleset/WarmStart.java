@@ -0,0 +1,182 @@
+package setvis.bubbleset;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Remembers where the calculation of a set ended, so that the next calculation
+ * of the same set can start there. Consecutive frames of an animation usually
+ * need the same energy threshold and influence factors. Starting with them
+ * saves the passes of marching squares that would otherwise find them again.
+ * Use one instance per set and call {@link #reset()} when the scene changes
+ * abruptly.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ * @see BubbleSet#createOutline(Rectangle2D[], Rectangle2D[], Line2D[],
+ *      WarmStart)
+ */
+public final class WarmStart {
+
+  /**
+   * The number of warm started calculations after which a calculation starts
+   * from the default values again. That calculation finds out whether the
+   * adjustments are still needed.
+   */
+  public static final int RETRY_INTERVAL = 16;
+
+  /**
+   * The configuration of the last calculation or <code>null</code> if there
+   * is nothing to start with.
+   */
+  private BubbleSetConfiguration configuration;
+
+  /** The number of adjustment passes the next calculation skips. */
+  private int passes;
+
+  /**
+   * Whether the outline of the last calculation that started from the default
+   * values contained a non-member. Such outlines are not warm started.
+   */
+  private boolean containsNonMember;
+
+  /** The number of warm started calculations since the last cold one. */
+  private int warmCalculations;
+
+  /**
+   * Forgets the last calculation. The next calculation starts with the
+   * default values.
+   */
+  public synchronized void reset() {
+    configuration = null;
+    passes = 0;
+    warmCalculations = 0;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return Whether the next calculation starts with the values of the last
+   *         one.
+   */
+  public synchronized boolean isWarm() {
+    return configuration != null && passes > 0;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of adjustment passes of marching squares the next
+   *         calculation skips.
+   */
+  public synchronized int getPasses() {
+    return configuration != null ? passes : 0;
+  }
+
+  /**
+   * Creates a context that skipped the passes of the warm start.
+   * 
+   * @return The context or <code>null</code> if there is nothing to start
+   *         with.
+   */
+  private OutlineContext skipped() {
+    if(configuration == null) return null;
+    final OutlineContext ctx = new OutlineContext(configuration);
+    BubbleSet.skipPasses(ctx, passes);
+    return ctx;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The energy threshold the next calculation starts with.
+   */
+  public synchronized double getThreshold() {
+    final OutlineContext ctx = skipped();
+    return ctx != null ? ctx.threshold : OutlineContext.DEFAULT_THRESHOLD;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The combined energy contribution for rectangles in the set the
+   *         next calculation starts with.
+   */
+  public synchronized double getNodeInfluenceFactor() {
+    final OutlineContext ctx = skipped();
+    return ctx != null ? ctx.nodeInfluenceSum
+        : OutlineContext.DEFAULT_NODE_INFLUENCE_FACTOR;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The combined energy contribution for virtual edges in the set the
+   *         next calculation starts with.
+   */
+  public synchronized double getEdgeInfluenceFactor() {
+    final OutlineContext ctx = skipped();
+    return ctx != null ? ctx.edgeInfluenceSum
+        : OutlineContext.DEFAULT_EDGE_INFLUENCE_FACTOR;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The combined energy contribution for rectangles not in the set the
+   *         next calculation starts with.
+   */
+  public synchronized double getNegativeNodeInfluenceFactor() {
+    final OutlineContext ctx = skipped();
+    return ctx != null ? ctx.negativeNodeInfluenceSum
+        : OutlineContext.DEFAULT_NEGATIVE_NODE_INFLUENCE_FACTOR;
+  }
+
+  /**
+   * Lets a calculation skip the adjustment passes the last calculation
+   * needed. Nothing is changed when the last calculation used a different
+   * configuration, when its outline contained a non-member or when it is time
+   * to start from the default values again.
+   * 
+   * @param ctx The context of the calculation.
+   * @return Whether the calculation starts warm.
+   */
+  synchronized boolean apply(final OutlineContext ctx) {
+    if(passes == 0 || containsNonMember
+        || !ctx.configuration.equals(configuration)) return false;
+    if(warmCalculations >= RETRY_INTERVAL) return false;
+    ++warmCalculations;
+    ctx.passes = passes;
+    return true;
+  }
+
+  /**
+   * Remembers the number of adjustment passes a calculation ended with. Since
+   * the passes always follow the schedule of a calculation starting from the
+   * default values, warm started calculations can not drift away from it. When
+   * the calculation did not find a contour containing all members the next
+   * one starts from the default values. The same happens when a warm started
+   * outline contains a non-member. That calculation should be repeated.
+   * 
+   * @param ctx The context of the finished calculation.
+   * @param warm Whether the calculation started warm.
+   * @return Whether the calculation has to be repeated.
+   */
+  synchronized boolean update(final OutlineContext ctx, final boolean warm) {
+    if(!ctx.converged) {
+      reset();
+      return false;
+    }
+    if(warm && ctx.containsNonMember) {
+      reset();
+      return true;
+    }
+    if(!warm) {
+      containsNonMember = ctx.containsNonMember;
+      warmCalculations = 0;
+    }
+    configuration = ctx.configuration;
+    passes = ctx.passes;
+    return false;
+  }
+
+}
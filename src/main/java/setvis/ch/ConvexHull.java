@@ -6,22 +6,22 @@ package setvis.ch;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.util.Arrays;
-import java.util.Comparator;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Set;
 
-import setvis.SetOutline;
-import setvis.VecUtil;
+import setvis.ClippableSetOutline;
+import setvis.LocalSetOutline;
+import setvis.PackedSetOutline;
 
 /**
  * Calculates a convex hull outline, ignoring the non members. The convex hull
- * is computed with the Graham's Scan algorithm.
+ * is computed with Andrew's monotone chain algorithm on the packed corners of
+ * the members. The vertices are in counter-clockwise order, when the y axis
+ * points upwards, and end with the lowest of the leftmost corners with the
+ * largest y coordinate.
  * 
  * @author Joschi <josua.krause@googlemail.com>
  */
-public class ConvexHull implements SetOutline {
+public class ConvexHull implements LocalSetOutline, PackedSetOutline,
+    ClippableSetOutline {
 
   @Override
   public Point2D[] createOutline(final Rectangle2D[] members,
@@ -29,72 +29,286 @@ public class ConvexHull implements SetOutline {
     return createOutline(members, nonMembers);
   }
 
+  @Override
+  public int createOutline(final double[] members, final int memberCount,
+      final double[] nonMembers, final int nonMemberCount,
+      final double[] lines, final int lineCount, final double[] out) {
+    if(memberCount < 0) throw new IllegalArgumentException("memberCount: "
+        + memberCount);
+    if(members.length / 4 < memberCount) throw new IllegalArgumentException(
+        "array too short for " + memberCount + " items: " + members.length);
+    final double[] corners = new double[memberCount * 8];
+    for(int i = 0, pos = 0; i < memberCount; ++i, pos += 4) {
+      final double x = members[pos];
+      final double y = members[pos + 1];
+      addCorners(corners, i, x, y, x + members[pos + 2], y
+          + members[pos + 3]);
+    }
+    final double[] hull = new double[getHullCapacity(memberCount)];
+    final int count = computeHull(corners, memberCount * 4, hull);
+    System.arraycopy(hull, 0, out, 0, Math.min(count * 2, out.length & ~1));
+    return count;
+  }
+
+  /**
+   * The convex hull consists of corners of the members.
+   */
+  @Override
+  public double getOutlineMargin() {
+    return 0;
+  }
+
+  /**
+   * The convex hull is cheap enough to always be calculated completely.
+   */
+  @Override
+  public Point2D[] createClippedOutline(final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers, final Line2D[] lines,
+      final Rectangle2D clip) {
+    return createOutline(members, nonMembers);
+  }
+
+  /**
+   * The convex hull ignores all non-members.
+   */
+  @Override
+  public double getNonMemberMargin() {
+    return 0;
+  }
+
   @Override
   public Point2D[] createOutline(final Rectangle2D[] members,
       final Rectangle2D[] nonMembers) {
-    if(members.length == 0) return new Point2D[0];
-    final Set<Point2D> all = new HashSet<Point2D>();
-    Point2D ref = null;
-    for(final Rectangle2D r : members) {
-      final Point2D p = new Point2D.Double(r.getMinX(), r.getMaxY());
-      if(ref == null || p.getY() > ref.getY()
-          || (p.getY() == ref.getY() && p.getX() < ref.getX())) {
-        ref = p;
+    final double[] corners = new double[members.length * 8];
+    for(int i = 0; i < members.length; ++i) {
+      final Rectangle2D r = members[i];
+      addCorners(corners, i, r.getMinX(), r.getMinY(), r.getMaxX(),
+          r.getMaxY());
+    }
+    final double[] hull = new double[getHullCapacity(members.length)];
+    final int count = computeHull(corners, members.length * 4, hull);
+    final Point2D[] res = new Point2D[count];
+    for(int i = 0; i < count; ++i) {
+      res[i] = new Point2D.Double(hull[i * 2], hull[i * 2 + 1]);
+    }
+    return res;
+  }
+
+  /**
+   * Creates a hull that is updated incrementally when members are added,
+   * moved, or removed.
+   * 
+   * @param members The rectangles to include.
+   * @return The hull.
+   */
+  public DynamicConvexHull createSession(final Rectangle2D[] members) {
+    return new DynamicConvexHull(members);
+  }
+
+  /**
+   * Writes the four corners of a rectangle into a packed array.
+   * 
+   * @param corners The array of corners.
+   * @param index The index of the rectangle.
+   * @param minX The minimal x coordinate.
+   * @param minY The minimal y coordinate.
+   * @param maxX The maximal x coordinate.
+   * @param maxY The maximal y coordinate.
+   */
+  private static void addCorners(final double[] corners, final int index,
+      final double minX, final double minY, final double maxX,
+      final double maxY) {
+    final int pos = index * 8;
+    corners[pos] = minX;
+    corners[pos + 1] = minY;
+    corners[pos + 2] = maxX;
+    corners[pos + 3] = minY;
+    corners[pos + 4] = maxX;
+    corners[pos + 5] = maxY;
+    corners[pos + 6] = minX;
+    corners[pos + 7] = maxY;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param rects The number of rectangles.
+   * @return The size of the array needed by
+   *         {@link #computeHull(double[], int, double[])} for the corners of
+   *         the given number of rectangles.
+   */
+  private static int getHullCapacity(final int rects) {
+    // the chains can hold every corner twice before popping
+    return (rects * 4 + 1) * 4;
+  }
+
+  /**
+   * Computes the convex hull of packed points. Duplicate points and points on
+   * the edges of the hull are left out.
+   * 
+   * @param points The packed points. The array is sorted in place.
+   * @param count The number of points.
+   * @param hull The array receiving the packed hull vertices. It must be able
+   *          to hold {@code 2 * count + 2} points.
+   * @return The number of hull vertices.
+   */
+  static int computeHull(final double[] points, final int count,
+      final double[] hull) {
+    sort(points, count);
+    // the lower chain from left to right
+    int k = 0;
+    for(int i = 0, pos = 0; i < count; ++i, pos += 2) {
+      k = push(hull, k, 2, points[pos], points[pos + 1]);
+    }
+    // the upper chain from right to left
+    final int lower = k + 1;
+    for(int pos = (count - 2) * 2; pos >= 0; pos -= 2) {
+      k = push(hull, k, lower, points[pos], points[pos + 1]);
+    }
+    // the last vertex is the first one
+    if(k > 1) {
+      --k;
+    }
+    rotate(hull, k);
+    return k;
+  }
+
+  /**
+   * Adds a point to a chain after removing all vertices that would not make a
+   * left turn with it. Duplicates of the last vertex are ignored.
+   * 
+   * @param hull The packed vertices of the chain.
+   * @param k The number of vertices.
+   * @param min The number of vertices that must be kept.
+   * @param x The x coordinate of the point.
+   * @param y The y coordinate of the point.
+   * @return The new number of vertices.
+   */
+  private static int push(final double[] hull, final int k, final int min,
+      final double x, final double y) {
+    int n = k;
+    if(n > 0 && hull[n * 2 - 2] == x && hull[n * 2 - 1] == y) return n;
+    while(n >= min) {
+      final double ax = hull[n * 2 - 4];
+      final double ay = hull[n * 2 - 3];
+      final double bx = hull[n * 2 - 2];
+      final double by = hull[n * 2 - 1];
+      if((bx - ax) * (y - ay) - (by - ay) * (x - ax) > 0) {
+        break;
       }
-      all.add(p);
-      all.add(new Point2D.Double(r.getMaxX(), r.getMinY()));
-      all.add(new Point2D.Double(r.getMaxX(), r.getMaxY()));
-      all.add(new Point2D.Double(r.getMinX(), r.getMinY()));
+      --n;
     }
-    final Point2D[] points = all.toArray(new Point2D[all.size()]);
-    sortPolar(points, ref);
-    return grahamScan(points);
+    hull[n * 2] = x;
+    hull[n * 2 + 1] = y;
+    return n + 1;
   }
 
   /**
-   * Sorts the array by polar coordinates in reference to {@code ref}.
+   * Rotates the hull so that it ends with the lowest of the leftmost vertices
+   * with the largest y coordinate.
    * 
-   * @param all The array to sort.
-   * @param ref The reference point for the polar coordinates.
+   * @param hull The packed hull vertices.
+   * @param k The number of vertices.
    */
-  private static void sortPolar(final Point2D[] all, final Point2D ref) {
-    final Comparator<Point2D> cmp = new Comparator<Point2D>() {
-      @Override
-      public int compare(final Point2D o1, final Point2D o2) {
-        if(VecUtil.isNull(ref, o1)) return -1;
-        if(VecUtil.isNull(ref, o2)) return 1;
-        return -VecUtil.relTo(ref, o1, o2);
+  private static void rotate(final double[] hull, final int k) {
+    int last = 0;
+    for(int i = 1; i < k; ++i) {
+      final double y = hull[i * 2 + 1];
+      final double ly = hull[last * 2 + 1];
+      if(y > ly || (y == ly && hull[i * 2] < hull[last * 2])) {
+        last = i;
       }
-    };
-    Arrays.sort(all, cmp);
+    }
+    // rotating left by last + 1 is three reversals
+    final int by = (last + 1) % Math.max(k, 1);
+    if(by == 0) return;
+    reverse(hull, 0, by);
+    reverse(hull, by, k);
+    reverse(hull, 0, k);
   }
 
   /**
-   * Performs the graham scan on a sorted array.
+   * Reverses a range of packed points.
    * 
-   * @param all The sorted array.
-   * @return The convex hull vertices.
+   * @param points The packed points.
+   * @param from The first point of the range.
+   * @param to The point after the range.
    */
-  private static Point2D[] grahamScan(final Point2D[] all) {
-    final LinkedList<Point2D> res = new LinkedList<Point2D>();
-    res.addFirst(all[0]);
-    res.addFirst(all[1]);
-    int i = 2;
-    final int n = all.length;
-    while(i < n) {
-      final Point2D p1 = res.get(0);
-      final Point2D si = all[i];
-      if(res.size() > 1) {
-        final Point2D p2 = res.get(1);
-        if(VecUtil.isNull(p2, p1) || VecUtil.relTo(p2, p1, si) <= 0) {
-          res.removeFirst();
-          continue;
-        }
+  private static void reverse(final double[] points, final int from,
+      final int to) {
+    for(int i = from, j = to - 1; i < j; ++i, --j) {
+      swap(points, i, j);
+    }
+  }
+
+  /**
+   * Sorts packed points in place by x coordinate and then by y coordinate.
+   * Heap sort is used, so no additional memory is needed.
+   * 
+   * @param points The packed points.
+   * @param count The number of points.
+   */
+  private static void sort(final double[] points, final int count) {
+    for(int i = count / 2 - 1; i >= 0; --i) {
+      siftDown(points, i, count);
+    }
+    for(int end = count - 1; end > 0; --end) {
+      swap(points, 0, end);
+      siftDown(points, 0, end);
+    }
+  }
+
+  /**
+   * Moves a point down the max heap until the heap property holds.
+   * 
+   * @param points The packed points.
+   * @param i The index of the point.
+   * @param count The size of the heap.
+   */
+  private static void siftDown(final double[] points, final int i,
+      final int count) {
+    int cur = i;
+    for(;;) {
+      int child = cur * 2 + 1;
+      if(child >= count) return;
+      if(child + 1 < count && isLess(points, child, child + 1)) {
+        ++child;
       }
-      res.addFirst(si);
-      ++i;
+      if(!isLess(points, cur, child)) return;
+      swap(points, cur, child);
+      cur = child;
     }
-    return res.toArray(new Point2D[res.size()]);
+  }
+
+  /**
+   * Compares two packed points by x coordinate and then by y coordinate.
+   * 
+   * @param points The packed points.
+   * @param a The index of the first point.
+   * @param b The index of the second point.
+   * @return Whether the first point comes before the second.
+   */
+  private static boolean isLess(final double[] points, final int a,
+      final int b) {
+    final double ax = points[a * 2];
+    final double bx = points[b * 2];
+    return ax < bx || (ax == bx && points[a * 2 + 1] < points[b * 2 + 1]);
+  }
+
+  /**
+   * Swaps two packed points.
+   * 
+   * @param points The packed points.
+   * @param a The index of the first point.
+   * @param b The index of the second point.
+   */
+  private static void swap(final double[] points, final int a, final int b) {
+    final double x = points[a * 2];
+    final double y = points[a * 2 + 1];
+    points[a * 2] = points[b * 2];
+    points[a * 2 + 1] = points[b * 2 + 1];
+    points[b * 2] = x;
+    points[b * 2 + 1] = y;
   }
 
 }
@@ -0,0 +1,660 @@
+package setvis.ch;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maintains the convex hull of a changing set of rectangles. Rectangles can be
+ * added, moved, and removed without calculating the hull from all corners
+ * again. The upper and the lower hull are each kept in a balanced tree whose
+ * leaves are the extreme corners of every distinct x coordinate. Every inner
+ * node stores the bridge between the hulls of its children, so a change only
+ * finds the bridges on the path to the root again. A change takes
+ * <code>O(log&sup2; n)</code> time and creating the outline takes
+ * <code>O(h log n)</code> time for a hull with <code>h</code> vertices. The
+ * outline is the same as the one of
+ * {@link ConvexHull#createOutline(Rectangle2D[], Rectangle2D[])} with the
+ * current members. A hull must not be used by multiple threads at the same
+ * time.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+public final class DynamicConvexHull {
+
+  /**
+   * A node of a hull tree. Leaves are points and inner nodes always have two
+   * children.
+   * 
+   * @author Joschi <josua.krause@googlemail.com>
+   */
+  private static final class Node {
+
+    /** The left child or <code>null</code> for leaves. */
+    Node left;
+
+    /** The right child or <code>null</code> for leaves. */
+    Node right;
+
+    /** The height of the subtree. Leaves have a height of zero. */
+    int height;
+
+    /** The x coordinate of a leaf. */
+    double x;
+
+    /** The y coordinate of a leaf. */
+    double y;
+
+    /** The smallest x coordinate in the subtree. */
+    double minX;
+
+    /** The left end of the bridge. It is a leaf of the left child. */
+    Node bridgeLeft;
+
+    /** The right end of the bridge. It is a leaf of the right child. */
+    Node bridgeRight;
+
+    /**
+     * Creates a leaf.
+     * 
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     */
+    public Node(final double x, final double y) {
+      this.x = x;
+      this.y = y;
+      minX = x;
+    }
+
+    /**
+     * Creates an inner node.
+     * 
+     * @param left The left child.
+     * @param right The right child.
+     */
+    public Node(final Node left, final Node right) {
+      this.left = left;
+      this.right = right;
+      update(this);
+    }
+
+    /**
+     * Getter.
+     * 
+     * @return Whether this node is a leaf.
+     */
+    public boolean isLeaf() {
+      return left == null;
+    }
+
+  }
+
+  /**
+   * An upper hull of points with distinct x coordinates.
+   * 
+   * @author Joschi <josua.krause@googlemail.com>
+   */
+  private static final class HullTree {
+
+    /** The root or <code>null</code> if the tree is empty. */
+    private Node root;
+
+    /**
+     * Replaces the content of the tree.
+     * 
+     * @param xs The x coordinates in ascending order.
+     * @param ys The y coordinates.
+     * @param count The number of points.
+     */
+    public void build(final double[] xs, final double[] ys, final int count) {
+      root = count == 0 ? null : build(xs, ys, 0, count);
+    }
+
+    /**
+     * Adds a point. There must be no point with the same x coordinate.
+     * 
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     */
+    public void insert(final double x, final double y) {
+      root = root == null ? new Node(x, y) : insert(root, x, y);
+    }
+
+    /**
+     * Moves the point with the given x coordinate.
+     * 
+     * @param x The x coordinate.
+     * @param y The new y coordinate.
+     */
+    public void set(final double x, final double y) {
+      set(root, x, y);
+    }
+
+    /**
+     * Removes the point with the given x coordinate.
+     * 
+     * @param x The x coordinate.
+     */
+    public void remove(final double x) {
+      root = remove(root, x);
+    }
+
+    /**
+     * Writes the vertices of the upper hull from left to right.
+     * 
+     * @param sign The factor for the y coordinates.
+     * @param out The packed array receiving the vertices.
+     * @param pos The index of the first value to write.
+     * @return The index after the last written value.
+     */
+    public int collect(final double sign, final double[] out, final int pos) {
+      if(root == null) return pos;
+      return collect(root, Double.NEGATIVE_INFINITY,
+          Double.POSITIVE_INFINITY, sign, out, pos);
+    }
+
+    /**
+     * Creates a balanced subtree.
+     * 
+     * @param xs The x coordinates in ascending order.
+     * @param ys The y coordinates.
+     * @param from The first point of the subtree.
+     * @param to The point after the last point of the subtree.
+     * @return The subtree.
+     */
+    private static Node build(final double[] xs, final double[] ys,
+        final int from, final int to) {
+      if(to - from == 1) return new Node(xs[from], ys[from]);
+      final int mid = (from + to + 1) >>> 1;
+      return new Node(build(xs, ys, from, mid), build(xs, ys, mid, to));
+    }
+
+    /**
+     * Adds a point to a subtree.
+     * 
+     * @param n The subtree.
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @return The new subtree.
+     */
+    private static Node insert(final Node n, final double x, final double y) {
+      if(n.isLeaf()) {
+        final Node leaf = new Node(x, y);
+        return x < n.x ? new Node(leaf, n) : new Node(n, leaf);
+      }
+      if(x < n.right.minX) {
+        n.left = insert(n.left, x, y);
+      } else {
+        n.right = insert(n.right, x, y);
+      }
+      return balance(n);
+    }
+
+    /**
+     * Moves a point of a subtree.
+     * 
+     * @param n The subtree.
+     * @param x The x coordinate.
+     * @param y The new y coordinate.
+     */
+    private static void set(final Node n, final double x, final double y) {
+      if(n.isLeaf()) {
+        n.y = y;
+        return;
+      }
+      set(x < n.right.minX ? n.left : n.right, x, y);
+      update(n);
+    }
+
+    /**
+     * Removes a point from a subtree.
+     * 
+     * @param n The subtree.
+     * @param x The x coordinate.
+     * @return The new subtree or <code>null</code> if it is empty.
+     */
+    private static Node remove(final Node n, final double x) {
+      if(n.isLeaf()) return null;
+      if(x < n.right.minX) {
+        final Node l = remove(n.left, x);
+        if(l == null) return n.right;
+        n.left = l;
+      } else {
+        final Node r = remove(n.right, x);
+        if(r == null) return n.left;
+        n.right = r;
+      }
+      return balance(n);
+    }
+
+    /**
+     * Writes the vertices of the upper hull of a subtree that lie in the given
+     * range.
+     * 
+     * @param n The subtree.
+     * @param from The smallest x coordinate.
+     * @param to The largest x coordinate.
+     * @param sign The factor for the y coordinates.
+     * @param out The packed array receiving the vertices.
+     * @param pos The index of the first value to write.
+     * @return The index after the last written value.
+     */
+    private static int collect(final Node n, final double from,
+        final double to, final double sign, final double[] out,
+        final int pos) {
+      if(n.isLeaf()) {
+        if(n.x < from || n.x > to) return pos;
+        out[pos] = n.x;
+        out[pos + 1] = sign * n.y;
+        return pos + 2;
+      }
+      // the hull follows the left child up to the bridge and the right child
+      // after it
+      int p = pos;
+      if(from <= n.bridgeLeft.x) {
+        p = collect(n.left, from, Math.min(to, n.bridgeLeft.x), sign, out, p);
+      }
+      if(to >= n.bridgeRight.x) {
+        p = collect(n.right, Math.max(from, n.bridgeRight.x), to, sign, out,
+            p);
+      }
+      return p;
+    }
+
+  }
+
+  /**
+   * Restores the balance of a node whose children differ in height by at
+   * most two.
+   * 
+   * @param n The node.
+   * @return The new root of the subtree.
+   */
+  private static Node balance(final Node n) {
+    final int diff = n.left.height - n.right.height;
+    if(diff > 1) {
+      if(n.left.left.height < n.left.right.height) {
+        n.left = rotateLeft(n.left);
+      }
+      return rotateRight(n);
+    }
+    if(diff < -1) {
+      if(n.right.right.height < n.right.left.height) {
+        n.right = rotateRight(n.right);
+      }
+      return rotateLeft(n);
+    }
+    update(n);
+    return n;
+  }
+
+  /**
+   * Rotates a subtree to the right.
+   * 
+   * @param n The root of the subtree.
+   * @return The new root.
+   */
+  private static Node rotateRight(final Node n) {
+    final Node l = n.left;
+    n.left = l.right;
+    update(n);
+    l.right = n;
+    update(l);
+    return l;
+  }
+
+  /**
+   * Rotates a subtree to the left.
+   * 
+   * @param n The root of the subtree.
+   * @return The new root.
+   */
+  private static Node rotateLeft(final Node n) {
+    final Node r = n.right;
+    n.right = r.left;
+    update(n);
+    r.left = n;
+    update(r);
+    return r;
+  }
+
+  /**
+   * Updates the height, the smallest x coordinate, and the bridge of an inner
+   * node after its children have changed.
+   * 
+   * @param n The node.
+   */
+  private static void update(final Node n) {
+    n.height = Math.max(n.left.height, n.right.height) + 1;
+    n.minX = n.left.minX;
+    findBridge(n);
+  }
+
+  /**
+   * Finds the bridge between the upper hulls of the children of a node. Both
+   * hulls are searched at the same time by descending their trees with the
+   * stored bridges.
+   * 
+   * @param n The node.
+   */
+  private static void findBridge(final Node n) {
+    // every x coordinate of the left child is smaller than the separator and
+    // none of the right child is
+    final double separator = n.right.minX;
+    Node l = n.left;
+    Node r = n.right;
+    while(!l.isLeaf() || !r.isLeaf()) {
+      final Node a = l.isLeaf() ? l : l.bridgeLeft;
+      final Node b = l.isLeaf() ? l : l.bridgeRight;
+      final Node c = r.isLeaf() ? r : r.bridgeLeft;
+      final Node d = r.isLeaf() ? r : r.bridgeRight;
+      if(!l.isLeaf() && (isAbove(a, b, c) || isAbove(a, b, d))) {
+        // the bridge touches the left hull before its edge
+        l = l.left;
+      } else if(!r.isLeaf() && (isAbove(c, d, a) || isAbove(c, d, b))) {
+        // the bridge touches the right hull after its edge
+        r = r.right;
+      } else if(l.isLeaf()) {
+        r = r.left;
+      } else if(r.isLeaf()) {
+        l = l.right;
+      } else if(lineAt(a, b, separator) > lineAt(c, d, separator)) {
+        // both edges bend towards the separator and intersect before it
+        l = l.right;
+      } else {
+        r = r.left;
+      }
+    }
+    n.bridgeLeft = l;
+    n.bridgeRight = r;
+  }
+
+  /**
+   * Checks whether a point lies above the line through two points.
+   * 
+   * @param from The left point of the line.
+   * @param to The right point of the line.
+   * @param p The point.
+   * @return Whether the point lies strictly above the line.
+   */
+  private static boolean isAbove(final Node from, final Node to,
+      final Node p) {
+    return (to.x - from.x) * (p.y - from.y) - (to.y - from.y)
+        * (p.x - from.x) > 0;
+  }
+
+  /**
+   * Evaluates the line through two points.
+   * 
+   * @param from The left point of the line.
+   * @param to The right point of the line.
+   * @param x The x coordinate.
+   * @return The y coordinate of the line at {@code x}.
+   */
+  private static double lineAt(final Node from, final Node to,
+      final double x) {
+    return from.y + (to.y - from.y) * (x - from.x) / (to.x - from.x);
+  }
+
+  /** The bounds of the members at the time they were last reported. */
+  private final Map<Rectangle2D, Rectangle2D> bounds =
+      new IdentityHashMap<Rectangle2D, Rectangle2D>();
+
+  /** The y coordinates of the corners with their counts by x coordinate. */
+  private final Map<Double, TreeMap<Double, Integer>> columns =
+      new HashMap<Double, TreeMap<Double, Integer>>();
+
+  /** The upper hull of the highest corner of every column. */
+  private final HullTree upper = new HullTree();
+
+  /** The upper hull of the negated lowest corner of every column. */
+  private final HullTree lower = new HullTree();
+
+  /** The packed vertices of both hulls. */
+  private double[] vertices = new double[0];
+
+  /** The last outline or <code>null</code> if it needs to be calculated. */
+  private Point2D[] outline;
+
+  /**
+   * Creates an empty hull.
+   */
+  public DynamicConvexHull() {
+    // nothing to do
+  }
+
+  /**
+   * Creates a hull.
+   * 
+   * @param members The initial members.
+   */
+  public DynamicConvexHull(final Rectangle2D[] members) {
+    for(final Rectangle2D r : members) {
+      if(r == null) throw new NullPointerException("r");
+      if(bounds.containsKey(r)) throw new IllegalArgumentException(
+          "rectangle already in hull: " + r);
+      final Rectangle2D b = (Rectangle2D) r.clone();
+      bounds.put(r, b);
+      addToColumn(b.getMinX(), b.getMinY());
+      addToColumn(b.getMinX(), b.getMaxY());
+      addToColumn(b.getMaxX(), b.getMinY());
+      addToColumn(b.getMaxX(), b.getMaxY());
+    }
+    // building the trees at once is faster than adding every corner
+    final int count = columns.size();
+    final double[] xs = new double[count];
+    int i = 0;
+    for(final Double x : columns.keySet()) {
+      xs[i++] = x;
+    }
+    Arrays.sort(xs);
+    final double[] max = new double[count];
+    final double[] min = new double[count];
+    for(i = 0; i < count; ++i) {
+      final TreeMap<Double, Integer> column = columns.get(xs[i]);
+      max[i] = column.lastKey();
+      min[i] = -column.firstKey();
+    }
+    upper.build(xs, max, count);
+    lower.build(xs, min, count);
+  }
+
+  /**
+   * Adds a member.
+   * 
+   * @param member The rectangle to include.
+   */
+  public void addMember(final Rectangle2D member) {
+    if(member == null) throw new NullPointerException("member");
+    if(bounds.containsKey(member)) throw new IllegalArgumentException(
+        "rectangle already in hull: " + member);
+    final Rectangle2D b = (Rectangle2D) member.clone();
+    bounds.put(member, b);
+    addCorners(b);
+  }
+
+  /**
+   * Tells the hull that a member has been moved or resized.
+   * 
+   * @param member The changed rectangle.
+   */
+  public void moveMember(final Rectangle2D member) {
+    final Rectangle2D b = bounds.get(member);
+    if(b == null) throw new IllegalArgumentException(
+        "rectangle not in hull: " + member);
+    removeCorners(b);
+    b.setRect(member);
+    addCorners(b);
+  }
+
+  /**
+   * Removes a member.
+   * 
+   * @param member The rectangle to remove.
+   */
+  public void removeMember(final Rectangle2D member) {
+    final Rectangle2D b = bounds.remove(member);
+    if(b == null) throw new IllegalArgumentException(
+        "rectangle not in hull: " + member);
+    removeCorners(b);
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The current members in no particular order.
+   */
+  public Rectangle2D[] getMembers() {
+    return bounds.keySet().toArray(new Rectangle2D[bounds.size()]);
+  }
+
+  /**
+   * Returns the convex hull of the current members. The outline is only
+   * calculated again when something has changed.
+   * 
+   * @return The vertices of the outline.
+   */
+  public Point2D[] getOutline() {
+    if(outline == null) {
+      outline = createOutline();
+    }
+    final Point2D[] res = new Point2D[outline.length];
+    for(int i = 0; i < res.length; ++i) {
+      res[i] = (Point2D) outline[i].clone();
+    }
+    return res;
+  }
+
+  /**
+   * Creates the outline from the upper and the lower hull.
+   * 
+   * @return The outline.
+   */
+  private Point2D[] createOutline() {
+    final int size = columns.size() * 4;
+    if(vertices.length < size) {
+      vertices = new double[Math.max(size, vertices.length * 2)];
+    }
+    int pos = upper.collect(1, vertices, 0);
+    pos = lower.collect(-1, vertices, pos);
+    // brings both hulls in the order and the form of the static hull
+    final int count = pos / 2;
+    final double[] hull = new double[(count + 1) * 4];
+    final int n = ConvexHull.computeHull(vertices, count, hull);
+    final Point2D[] res = new Point2D[n];
+    for(int i = 0; i < n; ++i) {
+      res[i] = new Point2D.Double(hull[i * 2], hull[i * 2 + 1]);
+    }
+    return res;
+  }
+
+  /**
+   * Adds the corners of a rectangle.
+   * 
+   * @param r The rectangle.
+   */
+  private void addCorners(final Rectangle2D r) {
+    addCorner(r.getMinX(), r.getMinY());
+    addCorner(r.getMinX(), r.getMaxY());
+    addCorner(r.getMaxX(), r.getMinY());
+    addCorner(r.getMaxX(), r.getMaxY());
+    outline = null;
+  }
+
+  /**
+   * Removes the corners of a rectangle.
+   * 
+   * @param r The rectangle.
+   */
+  private void removeCorners(final Rectangle2D r) {
+    removeCorner(r.getMinX(), r.getMinY());
+    removeCorner(r.getMinX(), r.getMaxY());
+    removeCorner(r.getMaxX(), r.getMinY());
+    removeCorner(r.getMaxX(), r.getMaxY());
+    outline = null;
+  }
+
+  /**
+   * Adds a corner.
+   * 
+   * @param px The x coordinate.
+   * @param py The y coordinate.
+   */
+  private void addCorner(final double px, final double py) {
+    final TreeMap<Double, Integer> column = addToColumn(px, py);
+    final double x = px + 0.0;
+    final double y = py + 0.0;
+    // an equal corner does not change the hulls
+    if(column.get(y) > 1) return;
+    if(column.size() == 1) {
+      upper.insert(x, y);
+      lower.insert(x, -y);
+      return;
+    }
+    if(y == column.lastKey()) {
+      upper.set(x, y);
+    }
+    if(y == column.firstKey()) {
+      lower.set(x, -y);
+    }
+  }
+
+  /**
+   * Adds a corner to its column without updating the hulls.
+   * 
+   * @param px The x coordinate.
+   * @param py The y coordinate.
+   * @return The column.
+   */
+  private TreeMap<Double, Integer> addToColumn(final double px,
+      final double py) {
+    // negative zero would be a different key
+    final Double x = px + 0.0;
+    final double y = py + 0.0;
+    TreeMap<Double, Integer> column = columns.get(x);
+    if(column == null) {
+      column = new TreeMap<Double, Integer>();
+      columns.put(x, column);
+    }
+    final Integer num = column.get(y);
+    column.put(y, num == null ? 1 : num + 1);
+    return column;
+  }
+
+  /**
+   * Removes a corner.
+   * 
+   * @param px The x coordinate.
+   * @param py The y coordinate.
+   */
+  private void removeCorner(final double px, final double py) {
+    final Double x = px + 0.0;
+    final double y = py + 0.0;
+    final TreeMap<Double, Integer> column = columns.get(x);
+    final int num = column.get(y);
+    if(num > 1) {
+      column.put(y, num - 1);
+      return;
+    }
+    column.remove(y);
+    if(column.isEmpty()) {
+      columns.remove(x);
+      upper.remove(x);
+      lower.remove(x);
+      return;
+    }
+    final double max = column.lastKey();
+    final double min = column.firstKey();
+    if(y > max) {
+      upper.set(x, max);
+    }
+    if(y < min) {
+      lower.set(x, -min);
+    }
+  }
+
+}
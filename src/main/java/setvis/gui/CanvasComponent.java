@@ -173,6 +173,12 @@ public class CanvasComponent extends JComponent implements Canvas {
    */
   private Shape[] groupShapes;
 
+  /**
+   * The region of the scene the cached shapes have been created for. Outlines
+   * outside of it are missing or cut off.
+   */
+  private Rectangle2D shapesViewport;
+
   /**
    * The current group new rectangles will be added to.
    */
@@ -591,11 +597,17 @@ public class CanvasComponent extends JComponent implements Canvas {
     g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
         RenderingHints.VALUE_ANTIALIAS_ON);
     final int count = getGroupCount();
-    if(groupShapes == null) {
+    final Rectangle2D visible = getVisibleScene();
+    if(groupShapes == null || !shapesViewport.contains(visible)) {
       // the cache needs to be recreated
       final AbstractShapeGenerator shaping = new ShapeSimplifier(shaper,
-          simplifyTolerance);
-      groupShapes = shaping.createShapesForLists(items);
+          simplifyTolerance, ShapeSimplifier.Mode.DOUGLAS_PEUCKER);
+      // leave some room for scrolling without recreating the cache
+      shapesViewport = new Rectangle2D.Double(
+          visible.getX() - visible.getWidth() * 0.5,
+          visible.getY() - visible.getHeight() * 0.5,
+          visible.getWidth() * 2, visible.getHeight() * 2);
+      groupShapes = shaping.createShapesForLists(items, shapesViewport);
       final StringBuilder sb = new StringBuilder();
       ShapeType.creationText(shaping, sb);
       javaText = sb.toString();
@@ -671,6 +683,17 @@ public class CanvasComponent extends JComponent implements Canvas {
     }
   }
 
+  /**
+   * Calculates the region of the scene that is visible on the component.
+   * 
+   * @return The visible region in scene coordinates.
+   */
+  private Rectangle2D getVisibleScene() {
+    final Dimension dim = getSize();
+    return new Rectangle2D.Double(-dx / zoom, -dy / zoom, dim.width / zoom,
+        dim.height / zoom);
+  }
+
   // whether to draw points
   private boolean drawPoints;
 
@@ -121,10 +121,16 @@ public enum ShapeType {
       }
       creationPrefix(shaper, sb);
       creationText(parent, sb);
-      if(s.getTolerance() != 0.0) {
+      final boolean greedy = s.getMode() == ShapeSimplifier.Mode.GREEDY;
+      if(s.getTolerance() != 0.0 || !greedy) {
         creationSeparator(sb);
         sb.append(s.getTolerance());
       }
+      if(!greedy) {
+        creationSeparator(sb);
+        sb.append("ShapeSimplifier.Mode.");
+        sb.append(s.getMode().name());
+      }
       creationPostfix(sb);
       return;
     } else {
@@ -5,14 +5,28 @@ package setvis.shape;
 
 import java.awt.Shape;
 import java.awt.geom.Line2D;
+import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
+import setvis.ClippableSetOutline;
 import setvis.Group;
+import setvis.LocalSetOutline;
+import setvis.PackedGeometry;
+import setvis.PackedSetOutline;
+import setvis.PathSink;
+import setvis.SceneIndex;
 import setvis.SetOutline;
 
 /**
@@ -28,6 +42,14 @@ public abstract class AbstractShapeGenerator {
    */
   private final SetOutline setOutline;
 
+  /**
+   * Whether this generator is a class of this package. Only then the buffer
+   * methods are used, since they skip the public methods that subclasses from
+   * other packages may override.
+   */
+  private final boolean usesBuffers =
+      getClass().getPackage() == AbstractShapeGenerator.class.getPackage();
+
   /**
    * Creates an {@link AbstractShapeGenerator} with a given set outline creator.
    * 
@@ -82,11 +104,29 @@ public abstract class AbstractShapeGenerator {
    */
   public final Shape[] createShapesForLists(
       final Collection<? extends Collection<Rectangle2D>> items) {
+    return createShapesForLists(items, null);
+  }
+
+  /**
+   * Creates shapes for all sets given by {@code items} that are visible in the
+   * viewport.
+   * 
+   * @param items A collection of sets. The sets are themselves a collection of
+   *          rectangles.
+   * @param viewport The visible region or <code>null</code> if everything is
+   *          visible.
+   * @return The outline shapes for each set given. Sets that are not visible
+   *         have a <code>null</code> shape.
+   * @see #createShapeFor(Rectangle2D[], Rectangle2D[], Line2D[], Rectangle2D)
+   */
+  public final Shape[] createShapesForLists(
+      final Collection<? extends Collection<Rectangle2D>> items,
+      final Rectangle2D viewport) {
     final List<Rectangle2D[]> list = new LinkedList<Rectangle2D[]>();
     for(final Collection<Rectangle2D> group : items) {
       list.add(group.toArray(new Rectangle2D[group.size()]));
     }
-    return createShapesFor(list);
+    return createShapesFor(list, viewport);
   }
 
   /**
@@ -97,13 +137,26 @@ public abstract class AbstractShapeGenerator {
    * @return The outline shapes for each set given.
    */
   public final Shape[] createShapesFor(final Collection<Rectangle2D[]> items) {
-    final Shape[] res = new Shape[items.size()];
-    int i = 0;
-    for(final Rectangle2D[] group : items) {
-      res[i] = createShapeFor(group, getNonMembers(items, i));
-      i++;
-    }
-    return res;
+    return createShapesFor(items, (Rectangle2D) null);
+  }
+
+  /**
+   * Creates shapes for all sets given by {@code items} that are visible in the
+   * viewport.
+   * 
+   * @param items A collection of sets. The sets are themselves an array of
+   *          rectangles.
+   * @param viewport The visible region or <code>null</code> if everything is
+   *          visible.
+   * @return The outline shapes for each set given. Sets that are not visible
+   *         have a <code>null</code> shape.
+   * @see #createShapeFor(Rectangle2D[], Rectangle2D[], Line2D[], Rectangle2D)
+   */
+  public final Shape[] createShapesFor(final Collection<Rectangle2D[]> items,
+      final Rectangle2D viewport) {
+    final Rectangle2D[][] members =
+        items.toArray(new Rectangle2D[items.size()][]);
+    return createShapesFor(members, new Line2D[members.length][], viewport);
   }
 
   /**
@@ -113,54 +166,364 @@ public abstract class AbstractShapeGenerator {
    * @return The outline shapes for each set given.
    */
   public final Shape[] createShapesForGroups(final Collection<Group> groups) {
-    final Shape[] res = new Shape[groups.size()];
-    int i = 0;
-    for(final Group group : groups) {
-      res[i] = createShapeFor(group, getNonMembersForGroups(groups, i));
-      i++;
+    return createShapesForGroups(groups, (Rectangle2D) null);
+  }
+
+  /**
+   * Creates shapes for all sets given by {@code groups} that are visible in
+   * the viewport.
+   * 
+   * @param groups A collection of groups.
+   * @param viewport The visible region or <code>null</code> if everything is
+   *          visible.
+   * @return The outline shapes for each set given. Sets that are not visible
+   *         have a <code>null</code> shape.
+   * @see #createShapeFor(Rectangle2D[], Rectangle2D[], Line2D[], Rectangle2D)
+   */
+  public final Shape[] createShapesForGroups(final Collection<Group> groups,
+      final Rectangle2D viewport) {
+    return createShapesFor(getRects(groups), getLines(groups), viewport);
+  }
+
+  /**
+   * Creates shapes for all sets one after another.
+   * 
+   * @param members The members of each set.
+   * @param lines The optional lines of each set. Entries may be
+   *          <code>null</code>.
+   * @param viewport The visible region or <code>null</code> if everything is
+   *          visible.
+   * @return The outline shapes for each set given.
+   */
+  private Shape[] createShapesFor(final Rectangle2D[][] members,
+      final Line2D[][] lines, final Rectangle2D viewport) {
+    final SceneIndex index = new SceneIndex(members);
+    final Shape[] res = new Shape[members.length];
+    for(int i = 0; i < members.length; ++i) {
+      if(viewport != null && !isVisible(members[i], lines[i], viewport)) {
+        continue;
+      }
+      res[i] = createShapeFor(members[i], getNonMembers(index, members[i], i),
+          lines[i], viewport);
     }
     return res;
   }
 
   /**
-   * Finds all items not belonging to the given group.
+   * Creates shapes for all sets given by {@code items} in parallel. The sets
+   * are scheduled on the given executor, largest first, so that the biggest
+   * calculations do not end up last. The underlying {@link SetOutline} must
+   * allow concurrent calls.
    * 
    * @param items A collection of sets. The sets are themselves an array of
    *          rectangles.
-   * @param groupID The group.
-   * @return All items not belonging to the group.
-   */
-  private static Rectangle2D[] getNonMembers(
-      final Collection<Rectangle2D[]> items, final int groupID) {
-    final List<Rectangle2D> res = new LinkedList<Rectangle2D>();
-    int g = 0;
-    for(final Rectangle2D[] group : items) {
-      if(g++ == groupID) {
-        continue;
+   * @param executor The executor running the calculations.
+   * @return The outline shapes for each set given in the same order as
+   *         {@link #createShapesFor(Collection)}.
+   * @throws InterruptedException If the current thread is interrupted while
+   *           waiting for the results. Pending calculations are cancelled.
+   */
+  public final Shape[] createShapesFor(final Collection<Rectangle2D[]> items,
+      final Executor executor) throws InterruptedException {
+    final Rectangle2D[][] members =
+        items.toArray(new Rectangle2D[items.size()][]);
+    return createShapesFor(members, new Line2D[members.length][], executor);
+  }
+
+  /**
+   * Creates shapes for all sets given by {@code groups} in parallel. The groups
+   * are scheduled on the given executor, largest first, so that the biggest
+   * calculations do not end up last. The underlying {@link SetOutline} must
+   * allow concurrent calls.
+   * 
+   * @param groups A collection of groups.
+   * @param executor The executor running the calculations.
+   * @return The outline shapes for each set given in the same order as
+   *         {@link #createShapesForGroups(Collection)}.
+   * @throws InterruptedException If the current thread is interrupted while
+   *           waiting for the results. Pending calculations are cancelled.
+   */
+  public final Shape[] createShapesForGroups(final Collection<Group> groups,
+      final Executor executor) throws InterruptedException {
+    return createShapesFor(getRects(groups), getLines(groups), executor);
+  }
+
+  /**
+   * Starts creating shapes for all sets given by {@code items} in the
+   * background. The sets are copied, so they may be changed afterwards.
+   * Cancelling the result with {@link Future#cancel(boolean) cancel(true)}
+   * stops the calculation if the underlying {@link SetOutline} checks for
+   * interruption.
+   * 
+   * @param items A collection of sets. The sets are themselves an array of
+   *          rectangles.
+   * @param executor The executor running the calculation.
+   * @return The future outline shapes for each set given.
+   */
+  public final Future<Shape[]> submitShapesFor(
+      final Collection<Rectangle2D[]> items, final Executor executor) {
+    final Rectangle2D[][] members =
+        items.toArray(new Rectangle2D[items.size()][]);
+    return submit(members, new Line2D[members.length][], executor);
+  }
+
+  /**
+   * Starts creating shapes for all sets given by {@code groups} in the
+   * background. The groups are copied, so they may be changed afterwards.
+   * Cancelling the result with {@link Future#cancel(boolean) cancel(true)}
+   * stops the calculation if the underlying {@link SetOutline} checks for
+   * interruption.
+   * 
+   * @param groups A collection of groups.
+   * @param executor The executor running the calculation.
+   * @return The future outline shapes for each set given.
+   */
+  public final Future<Shape[]> submitShapesForGroups(
+      final Collection<Group> groups, final Executor executor) {
+    return submit(getRects(groups), getLines(groups), executor);
+  }
+
+  /**
+   * Starts creating a shape for the given set in the background. The input is
+   * copied, so it may be changed afterwards.
+   * 
+   * @param members The items representing the set.
+   * @param nonMembers The items excluded from the set.
+   * @param lines Optional lines that may be ignored.
+   * @param executor The executor running the calculation.
+   * @return The future shape.
+   */
+  public final Future<Shape> submitShapeFor(final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers, final Line2D[] lines,
+      final Executor executor) {
+    if(executor == null) throw new NullPointerException("executor");
+    final Rectangle2D[] m = copy(members);
+    final Rectangle2D[] n = copy(nonMembers);
+    final Line2D[] l = copy(lines);
+    final FutureTask<Shape> task = new FutureTask<Shape>(new Callable<Shape>() {
+
+      @Override
+      public Shape call() throws Exception {
+        return createShapeFor(m, n, l);
       }
-      res.addAll(Arrays.asList(group));
+
+    });
+    executor.execute(task);
+    return task;
+  }
+
+  /**
+   * Starts creating shapes for all sets in the background.
+   * 
+   * @param members The members of each set.
+   * @param lines The optional lines of each set. Entries may be
+   *          <code>null</code>.
+   * @param executor The executor running the calculation.
+   * @return The future outline shapes for each set given.
+   */
+  private Future<Shape[]> submit(final Rectangle2D[][] members,
+      final Line2D[][] lines, final Executor executor) {
+    if(executor == null) throw new NullPointerException("executor");
+    final Rectangle2D[][] m = new Rectangle2D[members.length][];
+    final Line2D[][] l = new Line2D[lines.length][];
+    for(int i = 0; i < m.length; ++i) {
+      m[i] = copy(members[i]);
+      l[i] = copy(lines[i]);
     }
-    return res.toArray(new Rectangle2D[res.size()]);
+    final FutureTask<Shape[]> task =
+        new FutureTask<Shape[]>(new Callable<Shape[]>() {
+
+          @Override
+          public Shape[] call() throws Exception {
+            return createShapesFor(m, l, (Rectangle2D) null);
+          }
+
+        });
+    executor.execute(task);
+    return task;
   }
 
   /**
-   * Finds all rectangles not belonging to the given group.
+   * Copies rectangles.
    * 
-   * @param items A collection of groups.
-   * @param groupID The group.
-   * @return All rectangles not belonging to the group.
-   */
-  private static Rectangle2D[] getNonMembersForGroups(
-      final Collection<Group> items, final int groupID) {
-    final List<Rectangle2D> res = new LinkedList<Rectangle2D>();
-    int g = 0;
-    for(final Group group : items) {
-      if(g++ == groupID) {
-        continue;
+   * @param rects The rectangles.
+   * @return The copies.
+   */
+  private static Rectangle2D[] copy(final Rectangle2D[] rects) {
+    final Rectangle2D[] res = new Rectangle2D[rects.length];
+    for(int i = 0; i < res.length; ++i) {
+      res[i] = (Rectangle2D) rects[i].clone();
+    }
+    return res;
+  }
+
+  /**
+   * Copies lines.
+   * 
+   * @param lines The lines. May be <code>null</code>.
+   * @return The copies or <code>null</code>.
+   */
+  private static Line2D[] copy(final Line2D[] lines) {
+    if(lines == null) return null;
+    final Line2D[] res = new Line2D[lines.length];
+    for(int i = 0; i < res.length; ++i) {
+      res[i] = (Line2D) lines[i].clone();
+    }
+    return res;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param groups The groups.
+   * @return The rectangles of each group.
+   */
+  private static Rectangle2D[][] getRects(final Collection<Group> groups) {
+    final Rectangle2D[][] res = new Rectangle2D[groups.size()][];
+    int i = 0;
+    for(final Group group : groups) {
+      res[i++] = group.rects;
+    }
+    return res;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param groups The groups.
+   * @return The lines of each group.
+   */
+  private static Line2D[][] getLines(final Collection<Group> groups) {
+    final Line2D[][] res = new Line2D[groups.size()][];
+    int i = 0;
+    for(final Group group : groups) {
+      res[i++] = group.lines;
+    }
+    return res;
+  }
+
+  /**
+   * Creates shapes for all sets in parallel.
+   * 
+   * @param members The members of each set.
+   * @param lines The optional lines of each set. Entries may be
+   *          <code>null</code>.
+   * @param executor The executor running the calculations.
+   * @return The outline shapes for each set given.
+   * @throws InterruptedException If the current thread is interrupted while
+   *           waiting for the results.
+   */
+  private Shape[] createShapesFor(final Rectangle2D[][] members,
+      final Line2D[][] lines, final Executor executor)
+      throws InterruptedException {
+    if(executor == null) throw new NullPointerException("executor");
+    final SceneIndex index = new SceneIndex(members);
+    final int count = members.length;
+    final List<FutureTask<Shape>> tasks = new ArrayList<FutureTask<Shape>>(
+        count);
+    final Integer[] order = new Integer[count];
+    final double[] areas = new double[count];
+    for(int i = 0; i < count; ++i) {
+      final int groupID = i;
+      tasks.add(new FutureTask<Shape>(new Callable<Shape>() {
+
+        @Override
+        public Shape call() throws Exception {
+          return createShapeFor(members[groupID],
+              getNonMembers(index, members[groupID], groupID), lines[groupID]);
+        }
+
+      }));
+      order[i] = i;
+      areas[i] = getPaddedArea(members[i]);
+    }
+    // the sort is stable so equally large sets keep their order
+    Arrays.sort(order, new Comparator<Integer>() {
+
+      @Override
+      public int compare(final Integer a, final Integer b) {
+        return Double.compare(areas[b], areas[a]);
+      }
+
+    });
+    final Shape[] res = new Shape[count];
+    boolean done = false;
+    try {
+      for(final Integer groupID : order) {
+        executor.execute(tasks.get(groupID));
+      }
+      for(int i = 0; i < count; ++i) {
+        res[i] = tasks.get(i).get();
+      }
+      done = true;
+    } catch(final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if(cause instanceof RuntimeException) throw (RuntimeException) cause;
+      if(cause instanceof Error) throw (Error) cause;
+      throw new IllegalStateException(cause);
+    } finally {
+      if(!done) {
+        for(final FutureTask<Shape> task : tasks) {
+          task.cancel(true);
+        }
       }
-      res.addAll(Arrays.asList(group.rects));
     }
-    return res.toArray(new Rectangle2D[res.size()]);
+    return res;
+  }
+
+  /**
+   * Calculates the area of the bounding box of the given rectangles after the
+   * radius is added. This is used to estimate the cost of a set.
+   * 
+   * @param members The rectangles.
+   * @return The area of the padded bounding box.
+   */
+  private double getPaddedArea(final Rectangle2D[] members) {
+    if(members.length == 0) return 0;
+    final Rectangle2D bounds = getBounds(members);
+    final double dblRad = getRadius() * 2.0;
+    return (bounds.getWidth() + dblRad) * (bounds.getHeight() + dblRad);
+  }
+
+  /**
+   * Calculates the bounding box of the given rectangles.
+   * 
+   * @param rects The rectangles. Must not be empty.
+   * @return The bounding box.
+   */
+  private static Rectangle2D getBounds(final Rectangle2D[] rects) {
+    final Rectangle2D bounds = new Rectangle2D.Double();
+    bounds.setRect(rects[0]);
+    for(final Rectangle2D r : rects) {
+      bounds.add(r);
+    }
+    return bounds;
+  }
+
+  /**
+   * Finds the items not belonging to the given group that may influence its
+   * outline. If the set outline is a {@link LocalSetOutline} only the items
+   * within its margin are returned. Otherwise all items not belonging to the
+   * group are returned.
+   * 
+   * @param index The index of the scene.
+   * @param members The items of the group.
+   * @param groupID The group.
+   * @return The items not belonging to the group in scene order.
+   */
+  private Rectangle2D[] getNonMembers(final SceneIndex index,
+      final Rectangle2D[] members, final int groupID) {
+    if(members.length == 0) return new Rectangle2D[0];
+    if(!(setOutline instanceof LocalSetOutline)) return index
+        .getNonMembers(groupID);
+    final double margin = ((LocalSetOutline) setOutline).getNonMemberMargin();
+    if(Double.isInfinite(margin)) return index.getNonMembers(groupID);
+    final Rectangle2D region = getBounds(members);
+    // both members and non-members are enlarged by the radius
+    final double grow = margin + 2.0 * getRadius();
+    region.setRect(region.getX() - grow, region.getY() - grow,
+        region.getWidth() + 2.0 * grow, region.getHeight() + 2.0 * grow);
+    return index.getNonMembers(groupID, region);
   }
 
   /**
@@ -193,6 +556,95 @@ public abstract class AbstractShapeGenerator {
     return convertToShape(res, true);
   }
 
+  /**
+   * Creates the outline of the given set avoiding the given items not
+   * contained in the set and writes it into a sink instead of creating a
+   * shape.
+   * 
+   * @param members The items representing the set.
+   * @param nonMembers The items excluded from the set.
+   * @param lines Optional lines that may be ignored.
+   * @param sink The sink receiving the path of the outline.
+   */
+  public final void createPathFor(final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers, final Line2D[] lines,
+      final PathSink sink) {
+    if(sink == null) throw new NullPointerException("sink");
+    final Rectangle2D[] m = mapRects(members);
+    final Rectangle2D[] n = mapRects(nonMembers);
+    final Point2D[] res = setOutline.createOutline(m, n, lines);
+    convertToPath(res, true, sink);
+  }
+
+  /**
+   * Creates a shape for the given set if it is visible in the viewport. When
+   * the set outline is a {@link ClippableSetOutline} sets that are partially
+   * visible are only calculated for the viewport. The returned shape is then
+   * only correct within the viewport.
+   * 
+   * @param members The items representing the set.
+   * @param nonMembers The items excluded from the set.
+   * @param lines Optional lines that may be ignored.
+   * @param viewport The visible region or <code>null</code> if everything is
+   *          visible.
+   * @return The resulting shape or <code>null</code> if the set is not
+   *         visible.
+   */
+  public final Shape createShapeFor(final Rectangle2D[] members,
+      final Rectangle2D[] nonMembers, final Line2D[] lines,
+      final Rectangle2D viewport) {
+    final Rectangle2D bounds = getOutlineBounds(members, lines);
+    if(bounds == null || viewport == null || viewport.contains(bounds)) {
+      return createShapeFor(members, nonMembers, lines);
+    }
+    if(!bounds.intersects(viewport)) return null;
+    final Rectangle2D[] m = mapRects(members);
+    final Rectangle2D[] n = mapRects(nonMembers);
+    final Point2D[] res = ((ClippableSetOutline) setOutline)
+        .createClippedOutline(m, n, lines, viewport);
+    return convertToShape(res, true);
+  }
+
+  /**
+   * Checks whether the outline of a set may be visible in the viewport.
+   * 
+   * @param members The items representing the set.
+   * @param lines Optional lines that may be ignored.
+   * @param viewport The visible region.
+   * @return Whether the outline may be visible.
+   */
+  private boolean isVisible(final Rectangle2D[] members, final Line2D[] lines,
+      final Rectangle2D viewport) {
+    final Rectangle2D bounds = getOutlineBounds(members, lines);
+    return bounds == null || bounds.intersects(viewport);
+  }
+
+  /**
+   * Calculates the region that contains the outline of a set.
+   * 
+   * @param members The items representing the set.
+   * @param lines Optional lines that may be ignored.
+   * @return The region or <code>null</code> if the outline can not be bounded.
+   */
+  private Rectangle2D getOutlineBounds(final Rectangle2D[] members,
+      final Line2D[] lines) {
+    if(members.length == 0) return null;
+    if(!(setOutline instanceof ClippableSetOutline)) return null;
+    final double margin =
+        ((ClippableSetOutline) setOutline).getOutlineMargin();
+    if(Double.isInfinite(margin)) return null;
+    final Rectangle2D bounds = getBounds(members);
+    if(lines != null) {
+      for(final Line2D l : lines) {
+        bounds.add(l.getBounds2D());
+      }
+    }
+    final double grow = margin + getRadius();
+    bounds.setRect(bounds.getX() - grow, bounds.getY() - grow,
+        bounds.getWidth() + 2.0 * grow, bounds.getHeight() + 2.0 * grow);
+    return bounds;
+  }
+
   /**
    * Creates a shape for the given set avoiding the given groups not contained
    * in the set.
@@ -206,6 +658,59 @@ public abstract class AbstractShapeGenerator {
     return createShapeFor(group.rects, nonMembers, group.lines);
   }
 
+  /**
+   * Creates the outline for packed rectangles and lines without creating an
+   * object per item. The members and non-members are grown by the radius like
+   * with {@link #createShapeFor(Rectangle2D[], Rectangle2D[], Line2D[])}. When
+   * the set outline is no {@link PackedSetOutline} the items are converted to
+   * objects.
+   * 
+   * @param members The packed items representing the set.
+   * @param memberCount The number of items in {@code members}.
+   * @param nonMembers The packed items excluded from the set.
+   * @param nonMemberCount The number of items in {@code nonMembers}.
+   * @param lines Optional packed lines that may be ignored.
+   * @param lineCount The number of lines in {@code lines}.
+   * @param out The array receiving the packed vertices of the outline. If it
+   *          is too small only the vertices that fit are written.
+   * @return The number of vertices of the outline.
+   * @see PackedSetOutline
+   */
+  public final int createOutlineFor(final double[] members,
+      final int memberCount, final double[] nonMembers,
+      final int nonMemberCount, final double[] lines, final int lineCount,
+      final double[] out) {
+    final double[] m = mapRects(members, memberCount);
+    final double[] n = mapRects(nonMembers, nonMemberCount);
+    if(setOutline instanceof PackedSetOutline) {
+      return ((PackedSetOutline) setOutline).createOutline(m, memberCount, n,
+          nonMemberCount, lines, lineCount, out);
+    }
+    return PackedGeometry.createOutline(setOutline, m, memberCount, n,
+        nonMemberCount, lines, lineCount, out);
+  }
+
+  /**
+   * Maps packed rectangles like {@link #mapRect(Rectangle2D)}.
+   * 
+   * @param rects The packed rectangles.
+   * @param count The number of rectangles.
+   * @return A new array containing the mapped rectangles.
+   */
+  protected final double[] mapRects(final double[] rects, final int count) {
+    if(count < 0) throw new IllegalArgumentException("count: " + count);
+    final double radius = getRadius();
+    final double dblRad = radius * 2.0;
+    final double[] res = new double[count * 4];
+    for(int pos = 0; pos < res.length; pos += 4) {
+      res[pos] = rects[pos] - radius;
+      res[pos + 1] = rects[pos + 1] - radius;
+      res[pos + 2] = rects[pos + 2] + dblRad;
+      res[pos + 3] = rects[pos + 3] + dblRad;
+    }
+    return res;
+  }
+
   /**
    * Maps rectangles by performing {@link #mapRect(Rectangle2D)} on each element
    * of the array.
@@ -246,4 +751,110 @@ public abstract class AbstractShapeGenerator {
    */
   public abstract Shape convertToShape(Point2D[] points, boolean closed);
 
+  /**
+   * Converts vertices to a path that is written into a sink. The default
+   * implementation writes the segments of the shape created by
+   * {@link #convertToShape(Point2D[], boolean)}. The generators of this
+   * package write into the sink directly unless they are subclassed in another
+   * package.
+   * 
+   * @param points The sorted vertices representing the outlines of a set.
+   * @param closed If the path should be closed.
+   * @param sink The sink receiving the path.
+   */
+  public void convertToPath(final Point2D[] points, final boolean closed,
+      final PathSink sink) {
+    writeShape(convertToShape(points, closed), sink);
+  }
+
+  /**
+   * Writes the segments of a shape into a sink.
+   * 
+   * @param shape The shape.
+   * @param sink The sink receiving the path.
+   */
+  static void writeShape(final Shape shape, final PathSink sink) {
+    final double[] coords = new double[6];
+    final PathIterator it = shape.getPathIterator(null);
+    // the current point and the start of the current sub-path
+    double curX = 0;
+    double curY = 0;
+    double startX = 0;
+    double startY = 0;
+    while(!it.isDone()) {
+      switch(it.currentSegment(coords)) {
+        case PathIterator.SEG_MOVETO:
+          sink.moveTo(coords[0], coords[1]);
+          startX = coords[0];
+          startY = coords[1];
+          curX = startX;
+          curY = startY;
+          break;
+        case PathIterator.SEG_LINETO:
+          sink.lineTo(coords[0], coords[1]);
+          curX = coords[0];
+          curY = coords[1];
+          break;
+        case PathIterator.SEG_QUADTO:
+          // elevated to a cubic curve of the same shape
+          final double qx = coords[0] * 2 / 3;
+          final double qy = coords[1] * 2 / 3;
+          sink.curveTo(curX / 3 + qx, curY / 3 + qy, coords[2] / 3 + qx,
+              coords[3] / 3 + qy, coords[2], coords[3]);
+          curX = coords[2];
+          curY = coords[3];
+          break;
+        case PathIterator.SEG_CUBICTO:
+          sink.curveTo(coords[0], coords[1], coords[2], coords[3],
+              coords[4], coords[5]);
+          curX = coords[4];
+          curY = coords[5];
+          break;
+        case PathIterator.SEG_CLOSE:
+          sink.closePath();
+          curX = startX;
+          curY = startY;
+          break;
+      }
+      it.next();
+    }
+  }
+
+  /**
+   * Converts vertices stored in a buffer to a path that is written into a
+   * sink. The default implementation converts the vertices to objects and
+   * uses {@link #convertToPath(Point2D[], boolean, PathSink)}.
+   * 
+   * @param points The sorted vertices representing the outlines of a set.
+   * @param spare A buffer that can be used for intermediate results.
+   * @param closed If the path should be closed.
+   * @param sink The sink receiving the path.
+   */
+  void convertToPath(final PointBuffer points, final PointBuffer spare,
+      final boolean closed, final PathSink sink) {
+    convertToPath(points.toPoints(), closed, sink);
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return Whether the buffer methods of this generator are used. This holds
+   *         for the classes of this package.
+   */
+  final boolean usesBuffers() {
+    return usesBuffers;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return Whether a decorator of this generator may write curves directly
+   *         into the sink instead of passing sampled points to this
+   *         generator. This holds when this generator would only connect the
+   *         points with lines.
+   */
+  boolean acceptsCurves() {
+    return false;
+  }
+
 }
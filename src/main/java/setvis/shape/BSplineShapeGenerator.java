@@ -2,9 +2,9 @@ package setvis.shape;
 
 import java.awt.Shape;
 import java.awt.geom.Point2D;
-import java.util.LinkedList;
-import java.util.List;
 
+import setvis.Path2DSink;
+import setvis.PathSink;
 import setvis.SetOutline;
 
 /**
@@ -14,7 +14,9 @@ import setvis.SetOutline;
  * When performance is an issue and the outlines do not have to be very smooth
  * {@link BezierShapeGenerator} are a better alternative. The
  * {@link BSplineShapeGenerator} can be used as a decorator for other
- * generators.
+ * generators. When decorating a {@link PolygonShapeGenerator}, directly or
+ * through {@link ShapeSimplifier}s, every segment of the b-spline is emitted
+ * as exact cubic bezier curve instead.
  * 
  * @author Joschi <josua.krause@googlemail.com>
  */
@@ -29,8 +31,18 @@ public class BSplineShapeGenerator extends RoundShapeDecorator {
 
   private static final int REL_START = REL_END - ORDER;
 
+  // the number of control points influencing a point on the B spline
+  private static final int WEIGHTS = REL_END - REL_START + 1;
+
   private int granularity = 6;
 
+  // the basis weights of all samples of a segment
+  private double[] weights = createWeights(granularity);
+
+  private boolean exactCurves = true;
+
+  private double flatness;
+
   /**
    * Creates a new {@link BSplineShapeGenerator} with the given set outline
    * creator.
@@ -58,6 +70,7 @@ public class BSplineShapeGenerator extends RoundShapeDecorator {
    */
   public void setGranularity(final int granularity) {
     this.granularity = granularity;
+    weights = createWeights(granularity);
   }
 
   /**
@@ -69,24 +82,163 @@ public class BSplineShapeGenerator extends RoundShapeDecorator {
     return granularity;
   }
 
+  /**
+   * Setter.
+   * 
+   * @param exactCurves Whether the segments are emitted as cubic bezier curves
+   *          when the parent is a {@link PolygonShapeGenerator}, possibly
+   *          wrapped in {@link ShapeSimplifier}s. Those simplifiers are then
+   *          skipped. With any other parent, when this is off, or when a
+   *          positive flatness is set, the segments are sampled instead.
+   */
+  public void setExactCurves(final boolean exactCurves) {
+    this.exactCurves = exactCurves;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return Whether the segments are emitted as cubic bezier curves when the
+   *         parent is a {@link PolygonShapeGenerator}, possibly wrapped in
+   *         {@link ShapeSimplifier}s.
+   */
+  public boolean hasExactCurves() {
+    return exactCurves;
+  }
+
+  /**
+   * Setter.
+   * 
+   * @param flatness The maximal distance between the sampled points and the
+   *          exact curve. When positive each segment is subdivided until it is
+   *          flat enough instead of being sampled with the granularity. Flat
+   *          stretches then get fewer points than tight corners. A positive
+   *          flatness takes precedence over exact curves.
+   */
+  public void setFlatness(final double flatness) {
+    this.flatness = flatness;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The maximal distance between the sampled points and the exact
+   *         curve or a non-positive value if the granularity is used.
+   */
+  public double getFlatness() {
+    return flatness;
+  }
+
+  @Override
+  void convertToPath(final PointBuffer points, final PointBuffer spare,
+      final boolean closed, final PathSink sink) {
+    if(!usesBuffers() || !exactCurves || flatness > 0 || points.size() < 3
+        || !getParent().acceptsCurves()) {
+      super.convertToPath(points, spare, closed, sink);
+      return;
+    }
+    createCurves(points, closed, sink);
+  }
+
+  /**
+   * Creates the exact b-spline.
+   * 
+   * @param points The control points. There are at least three points.
+   * @param closed Whether the shape is closed.
+   * @param sink The sink receiving the b-spline consisting of one cubic
+   *          bezier curve per segment.
+   */
+  private void createCurves(final PointBuffer points,
+      final boolean closed, final PathSink sink) {
+    // a uniform cubic b-spline segment is a cubic bezier curve
+    final int len = points.size();
+    final int count = len + ORDER - 1;
+    final int from = START_INDEX - (closed ? 0 : 2);
+    final int to = count + (closed ? 0 : 2);
+    for(int i = from; i < to; ++i) {
+      final int i0 = getIndex(len, i, REL_START, closed);
+      final int i1 = getIndex(len, i, REL_START + 1, closed);
+      final int i2 = getIndex(len, i, REL_START + 2, closed);
+      final int i3 = getIndex(len, i, REL_END, closed);
+      final double x1 = points.getX(i1);
+      final double y1 = points.getY(i1);
+      final double x2 = points.getX(i2);
+      final double y2 = points.getY(i2);
+      if(i == from) {
+        sink.moveTo((points.getX(i0) + 4 * x1 + x2) / 6,
+            (points.getY(i0) + 4 * y1 + y2) / 6);
+      }
+      sink.curveTo((2 * x1 + x2) / 3, (2 * y1 + y2) / 3, (x1 + 2 * x2) / 3,
+          (y1 + 2 * y2) / 3, (x1 + 4 * x2 + points.getX(i3)) / 6,
+          (y1 + 4 * y2 + points.getY(i3)) / 6);
+    }
+    if(closed) {
+      sink.closePath();
+    }
+  }
+
   @Override
   public Point2D[] convert(final Point2D[] points, final boolean closed) {
     // covering special cases
     if(points.length < 3) return points;
+    return convertPoints(points, closed);
+  }
+
+  @Override
+  void convert(final PointBuffer points, final boolean closed,
+      final PointBuffer out) {
+    final int len = points.size();
+    // covering special cases
+    if(len < 3) {
+      out.set(points);
+      return;
+    }
+    if(flatness > 0) {
+      final Path2DSink curves = new Path2DSink();
+      createCurves(points, closed, curves);
+      flatten(curves.getPath(), flatness, closed, out);
+      return;
+    }
     // actual b-spline calculation
-    final List<Point2D> list = new LinkedList<Point2D>();
-    final int count = points.length + ORDER - 1;
+    final double[] w = weights;
+    final int samples = w.length / WEIGHTS - 1;
+    final int count = len + ORDER - 1;
+    final int from = START_INDEX - (closed ? 0 : 2);
+    final int to = count + (closed ? 0 : 2);
+    out.ensureCapacity(1 + (to - from) * samples);
+    for(int i = from; i < to; ++i) {
+      final int i0 = getIndex(len, i, REL_START, closed);
+      final int i1 = getIndex(len, i, REL_START + 1, closed);
+      final int i2 = getIndex(len, i, REL_START + 2, closed);
+      final int i3 = getIndex(len, i, REL_END, closed);
+      final double x0 = points.getX(i0);
+      final double y0 = points.getY(i0);
+      final double x1 = points.getX(i1);
+      final double y1 = points.getY(i1);
+      final double x2 = points.getX(i2);
+      final double y2 = points.getY(i2);
+      final double x3 = points.getX(i3);
+      final double y3 = points.getY(i3);
+      for(int j = i == from ? 0 : 1; j <= samples; ++j) {
+        final int b = j * WEIGHTS;
+        out.add(w[b] * x0 + w[b + 1] * x1 + w[b + 2] * x2 + w[b + 3] * x3,
+            w[b] * y0 + w[b + 1] * y1 + w[b + 2] * y2 + w[b + 3] * y3);
+      }
+    }
+  }
+
+  // the weights of the control points for each sample of a segment
+  private static double[] createWeights(final int granularity) {
+    final int samples = Math.max(granularity, 0);
     final double g = granularity;
-    final Point2D start = calcPoint(points, START_INDEX - (closed ? 0 : 2),
-        0, closed);
-    list.add(start);
-    for(int i = START_INDEX - (closed ? 0 : 2); i < count
-        + (closed ? 0 : 2); ++i) {
-      for(int j = 1; j <= granularity; ++j) {
-        list.add(calcPoint(points, i, j / g, closed));
+    final double[] res = new double[(samples + 1) * WEIGHTS];
+    for(int j = 0; j <= samples; ++j) {
+      final double t = j == 0 ? 0 : j / g;
+      for(int k = REL_START; k <= REL_END; ++k) {
+        res[j * WEIGHTS + k - REL_START] = basicFunction(k, t);
       }
     }
-    return list.toArray(new Point2D[list.size()]);
+    return res;
   }
 
   private static double basicFunction(final int i, final double t) {
@@ -105,20 +257,11 @@ public class BSplineShapeGenerator extends RoundShapeDecorator {
     }
   }
 
-  // evaluates a point on the B spline
-  private Point2D calcPoint(final Point2D[] points, final int i,
-      final double t, final boolean closed) {
-    double px = 0;
-    double py = 0;
-    for(int j = REL_START; j <= REL_END; j++) {
-      final Point2D p = points[closed ? getRelativeIndex(i, j,
-          points.length) : Math.max(0,
-          Math.min(points.length - 1, i + j))];
-      final double bf = basicFunction(j, t);
-      px += bf * p.getX();
-      py += bf * p.getY();
-    }
-    return new Point2D.Double(px, py);
+  // the index of a control point of the B spline
+  private int getIndex(final int len, final int i, final int j,
+      final boolean closed) {
+    return closed ? getRelativeIndex(i, j, len) : Math.max(0,
+        Math.min(len - 1, i + j));
   }
 
 }
@@ -3,13 +3,12 @@
  */
 package setvis.shape;
 
-import static setvis.VecUtil.*;
-
 import java.awt.Shape;
-import java.awt.geom.GeneralPath;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 
+import setvis.Path2DSink;
+import setvis.PathSink;
 import setvis.SetOutline;
 
 /**
@@ -53,67 +52,122 @@ public class BezierShapeGenerator extends RoundShapeGenerator {
 
   @Override
   public Shape convertToShape(final Point2D[] points, final boolean closed) {
-    final GeneralPath res = new GeneralPath();
+    final Path2DSink sink = new Path2DSink();
+    writePath(points, closed, sink);
+    return sink.getPath();
+  }
+
+  @Override
+  public void convertToPath(final Point2D[] points, final boolean closed,
+      final PathSink sink) {
+    if(!usesBuffers()) {
+      super.convertToPath(points, closed, sink);
+      return;
+    }
+    writePath(points, closed, sink);
+  }
+
+  /**
+   * Writes the rounded outline into a sink.
+   * 
+   * @param points The vertices of the outline.
+   * @param closed If the path should be closed.
+   * @param sink The sink receiving the path.
+   */
+  private void writePath(final Point2D[] points, final boolean closed,
+      final PathSink sink) {
     final int len = points.length;
+    if(len == 0) return;
+    final LineMergingSink out = new LineMergingSink(sink);
+    // the reference points of the edges before and after the current point,
+    // each first near its start and then near its end
+    final double[] ref = new double[8];
+    final int left = isClockwise() ? 2 : 4;
+    final int right = isClockwise() ? 4 : 2;
+    double ax = points[0].getX();
+    double ay = points[0].getY();
+    double inX = ax - points[len - 1].getX();
+    double inY = ay - points[len - 1].getY();
+    getEdgeReferences(ax - inX, ay - inY, inX, inY, ref, 0);
     boolean first = true;
     for(int i = 0; i < len; ++i) {
-      if(!closed && !hasMaxRadius && i >= len - 1) {
-        continue;
+      final Point2D next = points[i + 1 < len ? i + 1 : 0];
+      final double outX = next.getX() - ax;
+      final double outY = next.getY() - ay;
+      getEdgeReferences(ax, ay, outX, outY, ref, 4);
+      if(closed || hasMaxRadius || i < len - 1) {
+        // a straight run can only be merged when the curve would start at the
+        // left reference point
+        final boolean fromLeft = first || hasMaxRadius || isClockwise();
+        if(first) {
+          out.moveTo(ref[left], ref[left + 1]);
+          first = false;
+        } else if(hasMaxRadius) {
+          out.lineTo(ref[left], ref[left + 1]);
+        }
+        if((inX == 0 && outX == 0) || (inY == 0 && outY == 0)
+            || (fromLeft && inX * outX + inY * outY >= 0
+            && LineMergingSink.isStraight(inX, inY, outX, outY))) {
+          out.lineTo(ref[right], ref[right + 1]);
+        } else {
+          out.curveTo(ax, ay, ax, ay, ref[right], ref[right + 1]);
+        }
       }
-      final Point2D a = points[i]; // point
-      final Point2D b = points[getOtherIndex(i, len, false)]; // left
-      final Point2D c = points[getOtherIndex(i, len, true)]; // right
-      final Point2D[] vertices = hasMaxRadius ? getRestrictedBezier(a, b,
-          c) : getBezierForPoint(a, b, c);
-      final Point2D p = vertices[0];
-      if(first) {
-        res.moveTo(p.getX(), p.getY());
-        first = false;
-      } else if(hasMaxRadius) {
-        res.lineTo(p.getX(), p.getY());
-      }
-      final Point2D s1 = vertices[2];
-      if((a.getX() == b.getX() && b.getX() == c.getX())
-          || (a.getY() == b.getY() && b.getY() == c.getY())) {
-        res.lineTo(s1.getX(), s1.getY());
-        continue;
-      }
-      final Point2D s0 = vertices[1];
-      res.curveTo(s0.getX(), s0.getY(), s0.getX(), s0.getY(), s1.getX(),
-          s1.getY());
+      System.arraycopy(ref, 4, ref, 0, 4);
+      ax = next.getX();
+      ay = next.getY();
+      inX = outX;
+      inY = outY;
     }
-    if(!first && hasMaxRadius && closed) {
-      res.closePath();
+    if(hasMaxRadius && closed) {
+      out.closePath();
     }
-    return res;
+    out.flush();
   }
 
   /**
-   * Creates bezier points by using the middle points of two points of the
-   * outline as reference points.
+   * Calculates the bezier reference points of an edge. Without a maximal
+   * radius both are the middle of the edge. Otherwise they go at most a
+   * certain radius away from the ends of the edge.
    * 
-   * @param point The current point.
-   * @param left The point left of the current point.
-   * @param right The point right of the current point.
-   * @return The bezier reference points.
+   * @param x The x coordinate of the start of the edge.
+   * @param y The y coordinate of the start of the edge.
+   * @param dx The x direction of the edge.
+   * @param dy The y direction of the edge.
+   * @param out The array receiving the reference point near the start and the
+   *          one near the end.
+   * @param pos The position of the first x coordinate in the array.
    */
-  private static Point2D[] getBezierForPoint(final Point2D point,
-      final Point2D left, final Point2D right) {
-    return new Point2D[] { middleVec(point, left), point,
-        middleVec(point, right)};
+  private void getEdgeReferences(final double x, final double y,
+      final double dx, final double dy, final double[] out, final int pos) {
+    final double sqr = dx * dx + dy * dy;
+    if(hasMaxRadius && sqr > qdiam) {
+      final double s = rad / Math.sqrt(sqr);
+      out[pos] = x + dx * s;
+      out[pos + 1] = y + dy * s;
+      out[pos + 2] = x + dx * (1 - s);
+      out[pos + 3] = y + dy * (1 - s);
+      return;
+    }
+    out[pos] = x + dx * 0.5;
+    out[pos + 1] = y + dy * 0.5;
+    out[pos + 2] = out[pos];
+    out[pos + 3] = out[pos + 1];
   }
 
   /**
    * Cached radius helper for
-   * {@link #getRestrictedBezier(Point2D, Point2D, Point2D)}.
+   * {@link #getEdgeReferences(double, double, double, double, double[], int)}.
    */
   private double rad;
 
   /**
-   * Cached squared radius helper for
-   * {@link #getRestrictedBezier(Point2D, Point2D, Point2D)}.
+   * Cached helper for
+   * {@link #getEdgeReferences(double, double, double, double, double[], int)}.
+   * Edges with a larger squared length than this are longer than twice the
+   * radius.
    */
-  private double qrad;
+  private double qdiam;
 
   @Override
   public void setRadius(final double radius) {
@@ -121,7 +175,7 @@ public class BezierShapeGenerator extends RoundShapeGenerator {
     // even with four times the radius the curve won't cut the original
     // vertices
     rad = radius * 4.0;
-    qrad = rad * rad;
+    qdiam = 4.0 * rad * rad;
   }
 
   /**
@@ -133,28 +187,4 @@ public class BezierShapeGenerator extends RoundShapeGenerator {
     return hasMaxRadius;
   }
 
-  /**
-   * Creates bezier points by going a certain radius away from the current point
-   * in the directions of the neighbors.
-   * 
-   * @param point The current point.
-   * @param left The point left of the current point.
-   * @param right The point right of the current point.
-   * @return The bezier reference points.
-   */
-  private Point2D[] getRestrictedBezier(final Point2D point,
-      final Point2D left, final Point2D right) {
-    Point2D lp = middleVec(point, left);
-    final Point2D dlp = subVec(lp, point);
-    if(vecLengthSqr(dlp) > qrad) {
-      lp = addVec(mulVec(normVec(dlp), rad), point);
-    }
-    Point2D rp = middleVec(point, right);
-    final Point2D drp = subVec(rp, point);
-    if(vecLengthSqr(drp) > qrad) {
-      rp = addVec(mulVec(normVec(drp), rad), point);
-    }
-    return new Point2D[] { lp, point, rp};
-  }
-
 }
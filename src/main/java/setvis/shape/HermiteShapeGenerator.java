@@ -1,14 +1,16 @@
 package setvis.shape;
 
 import java.awt.geom.Point2D;
-import java.util.LinkedList;
-import java.util.List;
 
+import setvis.Path2DSink;
+import setvis.PathSink;
 import setvis.SetOutline;
 
 /**
  * A generic hermite shape generator. The tangent calculation must be done by a
- * subclass.
+ * subclass. When decorating a {@link PolygonShapeGenerator}, directly or
+ * through {@link ShapeSimplifier}s, every segment of the curve is emitted as
+ * exact cubic bezier curve.
  * 
  * @author Joschi <josua.krause@googlemail.com>
  */
@@ -18,6 +20,13 @@ public abstract class HermiteShapeGenerator extends RoundShapeDecorator {
 
   private int granularity = 6;
 
+  // the hermite basis of all samples of a segment
+  private double[] weights = createWeights(granularity);
+
+  private boolean exactCurves = true;
+
+  private double flatness;
+
   /**
    * Creates a hermite shape generator for a set outline.
    * 
@@ -45,6 +54,7 @@ public abstract class HermiteShapeGenerator extends RoundShapeDecorator {
    */
   public void setGranularity(final int granularity) {
     this.granularity = granularity;
+    weights = createWeights(granularity);
   }
 
   /**
@@ -56,28 +66,146 @@ public abstract class HermiteShapeGenerator extends RoundShapeDecorator {
     return granularity;
   }
 
+  /**
+   * Setter.
+   * 
+   * @param exactCurves Whether the segments are emitted as cubic bezier curves
+   *          when the parent is a {@link PolygonShapeGenerator}, possibly
+   *          wrapped in {@link ShapeSimplifier}s. Those simplifiers are then
+   *          skipped. With any other parent, when this is off, or when a
+   *          positive flatness is set, the segments are sampled instead.
+   */
+  public void setExactCurves(final boolean exactCurves) {
+    this.exactCurves = exactCurves;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return Whether the segments are emitted as cubic bezier curves when the
+   *         parent is a {@link PolygonShapeGenerator}, possibly wrapped in
+   *         {@link ShapeSimplifier}s.
+   */
+  public boolean hasExactCurves() {
+    return exactCurves;
+  }
+
+  /**
+   * Setter.
+   * 
+   * @param flatness The maximal distance between the sampled points and the
+   *          exact curve. When positive each segment is subdivided until it is
+   *          flat enough instead of being sampled with the granularity. Flat
+   *          stretches then get fewer points than tight corners. A positive
+   *          flatness takes precedence over exact curves.
+   */
+  public void setFlatness(final double flatness) {
+    this.flatness = flatness;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The maximal distance between the sampled points and the exact
+   *         curve or a non-positive value if the granularity is used.
+   */
+  public double getFlatness() {
+    return flatness;
+  }
+
+  @Override
+  void convertToPath(final PointBuffer points, final PointBuffer spare,
+      final boolean closed, final PathSink sink) {
+    if(!usesBuffers() || !exactCurves || flatness > 0 || points.size() < 3
+        || !parent.acceptsCurves()) {
+      super.convertToPath(points, spare, closed, sink);
+      return;
+    }
+    createCurves(points.toPoints(), closed, sink);
+  }
+
+  /**
+   * Creates the exact hermite curve.
+   * 
+   * @param points The control points. There are at least three points.
+   * @param closed Whether the shape is closed.
+   * @param sink The sink receiving the curve consisting of one cubic bezier
+   *          curve per segment.
+   */
+  private void createCurves(final Point2D[] points,
+      final boolean closed, final PathSink sink) {
+    // a hermite segment is a cubic bezier curve with the tangents scaled by
+    // one third as control points
+    final Point2D t0 = new Point2D.Double();
+    final Point2D t1 = new Point2D.Double();
+    final int count = points.length - (closed ? 0 : 1);
+    for(int i = 0; i < count; ++i) {
+      final int j = getPointIndex(points, closed, i, 1);
+      final Point2D p0 = points[i];
+      final Point2D p1 = points[j];
+      getTangentFor(points, closed, i, false, t0);
+      getTangentFor(points, closed, j, true, t1);
+      if(i == 0) {
+        sink.moveTo(p0.getX(), p0.getY());
+      }
+      sink.curveTo(p0.getX() + t0.getX() / 3, p0.getY() + t0.getY() / 3,
+          p1.getX() - t1.getX() / 3, p1.getY() - t1.getY() / 3, p1.getX(),
+          p1.getY());
+    }
+    if(closed) {
+      sink.closePath();
+    }
+  }
+
   @Override
   public Point2D[] convert(final Point2D[] points, final boolean closed) {
     // covering special cases
     if(points.length < 3) return points;
+    return convertPoints(points, closed);
+  }
+
+  @Override
+  void convert(final PointBuffer buffer, final boolean closed,
+      final PointBuffer out) {
+    // covering special cases
+    if(buffer.size() < 3) {
+      out.set(buffer);
+      return;
+    }
+    // the tangents are calculated on objects
+    final Point2D[] points = buffer.toPoints();
+    if(flatness > 0) {
+      final Path2DSink curves = new Path2DSink();
+      createCurves(points, closed, curves);
+      flatten(curves.getPath(), flatness, closed, out);
+      return;
+    }
     // actual hermite-curve calculation
-    final List<Point2D> list = new LinkedList<Point2D>();
+    final double[] w = weights;
+    final int samples = w.length / 4 - 1;
+    final Point2D t0 = new Point2D.Double();
+    final Point2D t1 = new Point2D.Double();
     final int count = points.length - (closed ? 0 : 1);
-    final double g = granularity;
+    out.ensureCapacity(count * samples + (closed ? 0 : 1));
     for(int i = 0; i < count; ++i) {
       final int j = getPointIndex(points, closed, i, 1);
-      final Point2D p0 = points[i];
-      final Point2D p1 = points[j];
-      final Point2D t0 = getTangentFor(points, closed, i, false);
-      final Point2D t1 = getTangentFor(points, closed, j, true);
-      if(!closed && i == 0) {
-        list.add(calcPoint(p0, p1, t0, t1, 0));
-      }
-      for(int s = 1; s <= granularity; ++s) {
-        list.add(calcPoint(p0, p1, t0, t1, s / g));
+      getTangentFor(points, closed, i, false, t0);
+      getTangentFor(points, closed, j, true, t1);
+      final double p0x = points[i].getX();
+      final double p0y = points[i].getY();
+      final double p1x = points[j].getX();
+      final double p1y = points[j].getY();
+      final double t0x = t0.getX();
+      final double t0y = t0.getY();
+      final double t1x = t1.getX();
+      final double t1y = t1.getY();
+      for(int s = !closed && i == 0 ? 0 : 1; s <= samples; ++s) {
+        final int b = s * 4;
+        out.add(w[b] * p0x + w[b + 1] * p1x + w[b + 2] * t0x + w[b + 3]
+            * t1x, w[b] * p0y + w[b + 1] * p1y + w[b + 2] * t0y + w[b + 3]
+            * t1y);
       }
     }
-    return list.toArray(new Point2D[list.size()]);
   }
 
   /**
@@ -110,20 +238,21 @@ public abstract class HermiteShapeGenerator extends RoundShapeDecorator {
         Math.min(points.length - 1, i + j));
   }
 
-  // evaluates a point on the hermite curve
-  private static Point2D calcPoint(final Point2D p0, final Point2D p1,
-      final Point2D t0, final Point2D t1, final double s) {
-    final double s2 = s * s;
-    final double s3 = s * s2;
-    final double h1 = 2 * s3 - 3 * s2 + 1;
-    final double h2 = -2 * s3 + 3 * s2;
-    final double h3 = s3 - 2 * s2 + s;
-    final double h4 = s3 - s2;
-    final double x = h1 * p0.getX() + h2 * p1.getX() + h3 * t0.getX() + h4
-        * t1.getX();
-    final double y = h1 * p0.getY() + h2 * p1.getY() + h3 * t0.getY() + h4
-        * t1.getY();
-    return new Point2D.Double(x, y);
+  // the hermite basis h1 to h4 for each sample of a segment
+  private static double[] createWeights(final int granularity) {
+    final int samples = Math.max(granularity, 0);
+    final double g = granularity;
+    final double[] res = new double[(samples + 1) * 4];
+    for(int j = 0; j <= samples; ++j) {
+      final double s = j == 0 ? 0 : j / g;
+      final double s2 = s * s;
+      final double s3 = s * s2;
+      res[j * 4] = 2 * s3 - 3 * s2 + 1;
+      res[j * 4 + 1] = -2 * s3 + 3 * s2;
+      res[j * 4 + 2] = s3 - 2 * s2 + s;
+      res[j * 4 + 3] = s3 - s2;
+    }
+    return res;
   }
 
   /**
@@ -138,6 +267,25 @@ public abstract class HermiteShapeGenerator extends RoundShapeDecorator {
   protected abstract Point2D getTangentFor(Point2D[] points, boolean closed,
       int i, boolean incoming);
 
+  /**
+   * Calculates the tangent for the given point without creating a new point.
+   * Subclasses should override this method when the tangent can be computed
+   * directly into the output.
+   * 
+   * @param points The point array.
+   * @param closed Whether the shape is closed.
+   * @param i The index of the current point.
+   * @param incoming Whether it is an incoming or outgoing tangent.
+   * @param out The point receiving the tangent.
+   * @return {@code out}.
+   */
+  protected Point2D getTangentFor(final Point2D[] points,
+      final boolean closed, final int i, final boolean incoming,
+      final Point2D out) {
+    out.setLocation(getTangentFor(points, closed, i, incoming));
+    return out;
+  }
+
   /**
    * Getter.
    * 
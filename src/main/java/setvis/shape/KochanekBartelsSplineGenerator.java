@@ -3,7 +3,6 @@ package setvis.shape;
 import java.awt.geom.Point2D;
 
 import setvis.SetOutline;
-import setvis.VecUtil;
 
 /**
  * The kochanek bartels spline.
@@ -93,11 +92,20 @@ public class KochanekBartelsSplineGenerator extends HermiteShapeGenerator {
   @Override
   protected Point2D getTangentFor(final Point2D[] points,
       final boolean closed, final int i, final boolean incoming) {
+    return getTangentFor(points, closed, i, incoming, new Point2D.Double());
+  }
+
+  @Override
+  protected Point2D getTangentFor(final Point2D[] points,
+      final boolean closed, final int i, final boolean incoming,
+      final Point2D out) {
     final Point2D p0 = points[i];
     final Point2D p1 = getPoint(points, closed, i, 1);
     final Point2D m1 = getPoint(points, closed, i, -1);
-    final Point2D a0 = VecUtil.subVec(p0, m1);
-    final Point2D a1 = VecUtil.subVec(p1, p0);
+    final double a0x = p0.getX() - m1.getX();
+    final double a0y = p0.getY() - m1.getY();
+    final double a1x = p1.getX() - p0.getX();
+    final double a1y = p1.getY() - p0.getY();
     double mul0;
     double mul1;
     if(incoming) {
@@ -107,8 +115,10 @@ public class KochanekBartelsSplineGenerator extends HermiteShapeGenerator {
       mul0 = (1 - t) * (1 + c) * (1 + b);
       mul1 = (1 - t) * (1 - c) * (1 - b);
     }
-    return VecUtil.addVec(VecUtil.mulVec(a0, mul0 * .5),
-        VecUtil.mulVec(a1, mul1 * .5));
+    mul0 *= .5;
+    mul1 *= .5;
+    out.setLocation(a0x * mul0 + a1x * mul1, a0y * mul0 + a1y * mul1);
+    return out;
   }
 
 }
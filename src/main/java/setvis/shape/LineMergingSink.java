@@ -0,0 +1,128 @@
+package setvis.shape;
+
+import setvis.PathSink;
+
+/**
+ * Passes segments on to another sink while merging straight runs. Consecutive
+ * lines that continue in the same direction are written as one line and lines
+ * of zero length are left out. The shape of the path stays the same.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+final class LineMergingSink implements PathSink {
+
+  /**
+   * The squared sine of the largest angle between two lines that are still
+   * merged.
+   */
+  private static final double STRAIGHT_SQ = 1e-18;
+
+  /** The sink receiving the merged segments. */
+  private final PathSink sink;
+
+  /** The x coordinate of the end of the last written segment. */
+  private double curX;
+
+  /** The y coordinate of the end of the last written segment. */
+  private double curY;
+
+  /** The x coordinate of the start of the current sub-path. */
+  private double startX;
+
+  /** The y coordinate of the start of the current sub-path. */
+  private double startY;
+
+  /** Whether there is a line that is not written yet. */
+  private boolean pending;
+
+  /** The x coordinate of the end of the pending line. */
+  private double endX;
+
+  /** The y coordinate of the end of the pending line. */
+  private double endY;
+
+  /**
+   * Creates a merging sink.
+   * 
+   * @param sink The sink receiving the merged segments.
+   */
+  public LineMergingSink(final PathSink sink) {
+    this.sink = sink;
+  }
+
+  /**
+   * Checks whether two vectors point in the same or in opposite directions.
+   * Vectors of zero length are in line with every vector.
+   * 
+   * @param x1 The x coordinate of the first vector.
+   * @param y1 The y coordinate of the first vector.
+   * @param x2 The x coordinate of the second vector.
+   * @param y2 The y coordinate of the second vector.
+   * @return Whether the vectors lie on one line.
+   */
+  static boolean isStraight(final double x1, final double y1,
+      final double x2, final double y2) {
+    final double cross = x1 * y2 - y1 * x2;
+    return cross * cross <= STRAIGHT_SQ * (x1 * x1 + y1 * y1)
+        * (x2 * x2 + y2 * y2);
+  }
+
+  @Override
+  public void moveTo(final double x, final double y) {
+    flush();
+    sink.moveTo(x, y);
+    curX = x;
+    curY = y;
+    startX = x;
+    startY = y;
+  }
+
+  @Override
+  public void lineTo(final double x, final double y) {
+    if(pending) {
+      final double dx = endX - curX;
+      final double dy = endY - curY;
+      final double nx = x - endX;
+      final double ny = y - endY;
+      if(dx * nx + dy * ny >= 0 && isStraight(dx, dy, nx, ny)) {
+        endX = x;
+        endY = y;
+        return;
+      }
+      flush();
+    }
+    if(x == curX && y == curY) return;
+    pending = true;
+    endX = x;
+    endY = y;
+  }
+
+  @Override
+  public void curveTo(final double x1, final double y1, final double x2,
+      final double y2, final double x3, final double y3) {
+    flush();
+    sink.curveTo(x1, y1, x2, y2, x3, y3);
+    curX = x3;
+    curY = y3;
+  }
+
+  @Override
+  public void closePath() {
+    flush();
+    sink.closePath();
+    curX = startX;
+    curY = startY;
+  }
+
+  /**
+   * Writes the pending line. This must be called after the last segment.
+   */
+  public void flush() {
+    if(!pending) return;
+    pending = false;
+    sink.lineTo(endX, endY);
+    curX = endX;
+    curY = endY;
+  }
+
+}
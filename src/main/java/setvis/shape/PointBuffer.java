@@ -0,0 +1,160 @@
+package setvis.shape;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+
+/**
+ * A growable list of points stored as interleaved coordinates. Shape
+ * generators pass points through their decorators in buffers like this, so
+ * that the stages of a chain do not create an object per point.
+ * 
+ * @author Joschi <josua.krause@googlemail.com>
+ */
+final class PointBuffer {
+
+  /** The coordinates as <code>x, y</code> pairs. */
+  private double[] coords;
+
+  /** The number of points. */
+  private int size;
+
+  /**
+   * Creates an empty buffer.
+   */
+  public PointBuffer() {
+    coords = new double[64];
+  }
+
+  /**
+   * Creates a buffer containing the given points.
+   * 
+   * @param points The points.
+   */
+  public PointBuffer(final Point2D[] points) {
+    coords = new double[Math.max(points.length * 2, 2)];
+    set(points);
+  }
+
+  /**
+   * Removes all points.
+   */
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * Removes all points and drops the storage when it can hold more than the
+   * given number of points.
+   * 
+   * @param capacity The number of points the kept storage may hold.
+   */
+  public void release(final int capacity) {
+    size = 0;
+    if(coords.length > Math.max(capacity, 32) * 2) {
+      coords = new double[64];
+    }
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of points.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Ensures that the buffer can hold the given number of points without
+   * growing.
+   * 
+   * @param count The number of points.
+   */
+  public void ensureCapacity(final int count) {
+    if(count * 2 <= coords.length) return;
+    coords = Arrays.copyOf(coords, Math.max(count * 2, coords.length * 2));
+  }
+
+  /**
+   * Adds a point.
+   * 
+   * @param x The x coordinate.
+   * @param y The y coordinate.
+   */
+  public void add(final double x, final double y) {
+    if(size * 2 == coords.length) {
+      ensureCapacity(size + 1);
+    }
+    coords[size * 2] = x;
+    coords[size * 2 + 1] = y;
+    ++size;
+  }
+
+  /**
+   * Removes the last point.
+   */
+  public void removeLast() {
+    if(size == 0) throw new IllegalStateException("buffer is empty");
+    --size;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param i The index of the point.
+   * @return The x coordinate.
+   */
+  public double getX(final int i) {
+    return coords[i * 2];
+  }
+
+  /**
+   * Getter.
+   * 
+   * @param i The index of the point.
+   * @return The y coordinate.
+   */
+  public double getY(final int i) {
+    return coords[i * 2 + 1];
+  }
+
+  /**
+   * Replaces the content with the given points.
+   * 
+   * @param points The points.
+   */
+  public void set(final Point2D[] points) {
+    size = 0;
+    ensureCapacity(points.length);
+    for(final Point2D p : points) {
+      coords[size * 2] = p.getX();
+      coords[size * 2 + 1] = p.getY();
+      ++size;
+    }
+  }
+
+  /**
+   * Replaces the content with the points of another buffer.
+   * 
+   * @param points The other buffer.
+   */
+  public void set(final PointBuffer points) {
+    ensureCapacity(points.size);
+    System.arraycopy(points.coords, 0, coords, 0, points.size * 2);
+    size = points.size;
+  }
+
+  /**
+   * Creates objects for all points.
+   * 
+   * @return The points.
+   */
+  public Point2D[] toPoints() {
+    final Point2D[] res = new Point2D[size];
+    for(int i = 0; i < size; ++i) {
+      res[i] = new Point2D.Double(coords[i * 2], coords[i * 2 + 1]);
+    }
+    return res;
+  }
+
+}
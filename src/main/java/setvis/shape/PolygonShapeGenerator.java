@@ -4,10 +4,11 @@
 package setvis.shape;
 
 import java.awt.Shape;
-import java.awt.geom.GeneralPath;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 
+import setvis.Path2DSink;
+import setvis.PathSink;
 import setvis.SetOutline;
 
 /**
@@ -30,22 +31,67 @@ public class PolygonShapeGenerator extends AbstractShapeGenerator {
 
   @Override
   public Shape convertToShape(final Point2D[] points, final boolean closed) {
-    final GeneralPath res = new GeneralPath();
+    final Path2DSink sink = new Path2DSink();
+    writePath(points, closed, sink);
+    return sink.getPath();
+  }
+
+  @Override
+  public void convertToPath(final Point2D[] points, final boolean closed,
+      final PathSink sink) {
+    if(!usesBuffers()) {
+      super.convertToPath(points, closed, sink);
+      return;
+    }
+    writePath(points, closed, sink);
+  }
+
+  /**
+   * Writes the polygon into a sink.
+   * 
+   * @param points The vertices of the polygon.
+   * @param closed If the path should be closed.
+   * @param sink The sink receiving the path.
+   */
+  private static void writePath(final Point2D[] points, final boolean closed,
+      final PathSink sink) {
     boolean first = true;
     for(final Point2D pos : points) {
       final double x = pos.getX();
       final double y = pos.getY();
       if(first) {
-        res.moveTo(x, y);
+        sink.moveTo(x, y);
         first = false;
       } else {
-        res.lineTo(x, y);
+        sink.lineTo(x, y);
       }
     }
     if(!first && closed) {
-      res.closePath();
+      sink.closePath();
     }
-    return res;
+  }
+
+  @Override
+  void convertToPath(final PointBuffer points, final PointBuffer spare,
+      final boolean closed, final PathSink sink) {
+    if(!usesBuffers()) {
+      super.convertToPath(points, spare, closed, sink);
+      return;
+    }
+    final int size = points.size();
+    if(size == 0) return;
+    sink.moveTo(points.getX(0), points.getY(0));
+    for(int i = 1; i < size; ++i) {
+      sink.lineTo(points.getX(i), points.getY(i));
+    }
+    if(closed) {
+      sink.closePath();
+    }
+  }
+
+  @Override
+  boolean acceptsCurves() {
+    return usesBuffers();
   }
 
 }
@@ -4,6 +4,7 @@
 package setvis.shape;
 
 import java.awt.Shape;
+import java.awt.geom.PathIterator;
 import java.awt.geom.Rectangle2D;
 
 import setvis.SetOutline;
@@ -76,6 +77,34 @@ public abstract class RoundShapeDecorator extends ShapeGeneratorDecorator {
     return i;
   }
 
+  /**
+   * Subdivides the curves of a shape until they are flat enough. The
+   * subdivision is adaptive, i.e., straight parts get fewer points than
+   * bends.
+   * 
+   * @param curves The shape consisting of one sub-path.
+   * @param flatness The maximal distance between the points and the curves.
+   * @param closed Whether the shape is closed. The last point is then not
+   *          repeated.
+   * @param out The buffer receiving the points of the subdivided curves.
+   */
+  static final void flatten(final Shape curves, final double flatness,
+      final boolean closed, final PointBuffer out) {
+    final double[] coords = new double[6];
+    final PathIterator it = curves.getPathIterator(null, flatness);
+    while(!it.isDone()) {
+      if(it.currentSegment(coords) != PathIterator.SEG_CLOSE) {
+        out.add(coords[0], coords[1]);
+      }
+      it.next();
+    }
+    final int last = out.size() - 1;
+    if(closed && last > 0 && out.getX(0) == out.getX(last)
+        && out.getY(0) == out.getY(last)) {
+      out.removeLast();
+    }
+  }
+
   /**
    * Getter.
    * 
@@ -3,8 +3,18 @@ package setvis.shape;
 import java.awt.Shape;
 import java.awt.geom.Point2D;
 
+import setvis.Path2DSink;
+import setvis.PathSink;
+
 /**
- * Decorates another {@link AbstractShapeGenerator}.
+ * Decorates another {@link AbstractShapeGenerator}. A chain of decorators
+ * passes the points from stage to stage in two buffers that are used in turn,
+ * so no stage has to create intermediate arrays. The last stage writes the
+ * path into a {@link PathSink}. Stages that are subclassed in another package
+ * use {@link #convert(Point2D[], boolean)} and
+ * {@link #convertToShape(Point2D[], boolean)} instead, so their overrides are
+ * honoured. Each thread keeps its buffers unless they grow beyond the buffer
+ * capacity.
  * 
  * @author Joschi <josua.krause@googlemail.com>
  */
@@ -12,6 +22,26 @@ public abstract class ShapeGeneratorDecorator extends AbstractShapeGenerator {
 
   private final AbstractShapeGenerator parent;
 
+  /** The default number of points a kept buffer may hold. */
+  public static final int DEFAULT_BUFFER_CAPACITY = 1 << 14;
+
+  /** The number of points a kept buffer may hold. */
+  private static volatile int bufferCapacity = DEFAULT_BUFFER_CAPACITY;
+
+  /**
+   * The buffers of the current thread or <code>null</code> while they are in
+   * use.
+   */
+  private static final ThreadLocal<PointBuffer[]> BUFFERS =
+      new ThreadLocal<PointBuffer[]>() {
+
+        @Override
+        protected PointBuffer[] initialValue() {
+          return new PointBuffer[] { new PointBuffer(), new PointBuffer()};
+        }
+
+      };
+
   /**
    * Creates a new shape generator decorator.
    * 
@@ -22,9 +52,98 @@ public abstract class ShapeGeneratorDecorator extends AbstractShapeGenerator {
     this.parent = parent;
   }
 
+  /**
+   * Setter.
+   * 
+   * @param points The number of points a buffer kept by a thread may hold.
+   *          Larger buffers are dropped after use.
+   */
+  public static void setBufferCapacity(final int points) {
+    if(points < 0) throw new IllegalArgumentException("points: " + points);
+    bufferCapacity = points;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The number of points a buffer kept by a thread may hold.
+   */
+  public static int getBufferCapacity() {
+    return bufferCapacity;
+  }
+
   @Override
   public Shape convertToShape(final Point2D[] points, final boolean closed) {
-    return parent.convertToShape(convert(points, closed), closed);
+    if(!usesBuffers()) {
+      return parent.convertToShape(convert(points, closed), closed);
+    }
+    final Path2DSink sink = new Path2DSink();
+    convertToPath(points, closed, sink);
+    return sink.getPath();
+  }
+
+  @Override
+  public void convertToPath(final Point2D[] points, final boolean closed,
+      final PathSink sink) {
+    if(!usesBuffers()) {
+      super.convertToPath(points, closed, sink);
+      return;
+    }
+    PointBuffer[] buffers = BUFFERS.get();
+    // a nested conversion gets its own buffers
+    BUFFERS.set(null);
+    if(buffers == null) {
+      buffers = new PointBuffer[] { new PointBuffer(), new PointBuffer()};
+    }
+    try {
+      buffers[0].set(points);
+      convertToPath(buffers[0], buffers[1], closed, sink);
+    } finally {
+      final int capacity = bufferCapacity;
+      buffers[0].release(capacity);
+      buffers[1].release(capacity);
+      BUFFERS.set(buffers);
+    }
+  }
+
+  @Override
+  void convertToPath(final PointBuffer points, final PointBuffer spare,
+      final boolean closed, final PathSink sink) {
+    if(!usesBuffers()) {
+      convertToPath(points.toPoints(), closed, sink);
+      return;
+    }
+    spare.clear();
+    convert(points, closed, spare);
+    parent.convertToPath(spare, points, closed, sink);
+  }
+
+  /**
+   * Manipulates the original outline by modifying the vertices. The default
+   * implementation converts the points to objects and uses
+   * {@link #convert(Point2D[], boolean)}.
+   * 
+   * @param points The original points.
+   * @param closed Whether the shape should be closed.
+   * @param out The empty buffer receiving the new points.
+   */
+  void convert(final PointBuffer points, final boolean closed,
+      final PointBuffer out) {
+    out.set(convert(points.toPoints(), closed));
+  }
+
+  /**
+   * Manipulates the original outline like
+   * {@link #convert(PointBuffer, boolean, PointBuffer)}.
+   * 
+   * @param points The original points.
+   * @param closed Whether the shape should be closed.
+   * @return The new points.
+   */
+  final Point2D[] convertPoints(final Point2D[] points, final boolean closed) {
+    final PointBuffer out = new PointBuffer();
+    convert(new PointBuffer(points), closed, out);
+    return out.toPoints();
   }
 
   /**
@@ -1,10 +1,8 @@
 package setvis.shape;
 
+import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
-import java.util.LinkedList;
-import java.util.List;
-
-import setvis.VecUtil;
+import java.util.Arrays;
 
 /**
  * Simplifies shapes by removing points that lie on a line. Given an arbitrary
@@ -13,14 +11,56 @@ import setvis.VecUtil;
  * points. This is a fast implementation of this property by not checking every
  * pair of two points but only those that could possibly lead to a
  * simplification. The class can be used as decorator for shape generators.
+ * Long shapes can be simplified faster with the {@link Mode#DOUGLAS_PEUCKER}
+ * or {@link Mode#VISVALINGAM} algorithms.
  * 
  * @author Joschi <josua.krause@googlemail.com>
  */
 public class ShapeSimplifier extends ShapeGeneratorDecorator {
 
+  /**
+   * The algorithms to simplify shapes. All algorithms only remove points that
+   * lie within the tolerance of the line between the remaining neighbours.
+   * 
+   * @author Joschi <josua.krause@googlemail.com>
+   */
+  public static enum Mode {
+
+    /**
+     * Extends a line from a start point as long as all points in-between lie
+     * beneath the line. Every extension checks all points in-between again.
+     */
+    GREEDY,
+
+    /**
+     * Recursively keeps the point farthest from the line between two kept
+     * points until all points in-between lie beneath the line. This is the
+     * Douglas-Peucker algorithm and needs <code>O(n log n)</code> time for
+     * typical shapes.
+     */
+    DOUGLAS_PEUCKER,
+
+    /**
+     * Repeatedly removes the point whose removal moves the shape the least as
+     * long as all points between its neighbours, including the points removed
+     * before, lie beneath the line between the neighbours. The distance of the
+     * removed points is bounded from above, so this may keep a few more points
+     * than necessary. This is the Visvalingam-Whyatt algorithm with the
+     * distance as measure of the effective area and needs
+     * <code>O(n log n)</code> time.
+     */
+    VISVALINGAM,
+
+    /* end of declaration. */;
+
+  }
+
   // the maximum distance where points are regarded as beneath
   private double tolerance;
 
+  // the algorithm used for simplification
+  private Mode mode;
+
   /**
    * Creates a shape simplifier that removes points which lie exactly between
    * other points.
@@ -40,9 +80,23 @@ public class ShapeSimplifier extends ShapeGeneratorDecorator {
    */
   public ShapeSimplifier(final AbstractShapeGenerator parent,
       final double tolerance) {
+    this(parent, tolerance, Mode.GREEDY);
+  }
+
+  /**
+   * Creates a shape simplifier that removes points which lie within a certain
+   * radius between other points using the given algorithm.
+   * 
+   * @param parent The underlying generator.
+   * @param tolerance The radius where points are regarded as near.
+   * @param mode The algorithm used for simplification.
+   */
+  public ShapeSimplifier(final AbstractShapeGenerator parent,
+      final double tolerance, final Mode mode) {
     super(parent);
     // proper initialization of the tolerance
     setTolerance(tolerance);
+    setMode(mode);
   }
 
   @Override
@@ -90,6 +144,25 @@ public class ShapeSimplifier extends ShapeGeneratorDecorator {
     return tsqr;
   }
 
+  /**
+   * Setter.
+   * 
+   * @param mode Sets the algorithm used for simplification.
+   */
+  public void setMode(final Mode mode) {
+    if(mode == null) throw new NullPointerException("mode");
+    this.mode = mode;
+  }
+
+  /**
+   * Getter.
+   * 
+   * @return The algorithm used for simplification.
+   */
+  public Mode getMode() {
+    return mode;
+  }
+
   /**
    * Getter.
    * 
@@ -100,148 +173,374 @@ public class ShapeSimplifier extends ShapeGeneratorDecorator {
   }
 
   /**
-   * A tuple of two points of the shapes original point list.
-   * 
-   * @author Joschi <josua.krause@googlemail.com>
+   * Exact curves need no simplification, so they are passed through when the
+   * parent accepts them.
    */
-  private final class State {
-
-    // whether the shape will be drawn closed
-    private final boolean closed;
-
-    // the original list of points
-    private final Point2D[] list;
-
-    // the start points index
-    private final int start;
+  @Override
+  boolean acceptsCurves() {
+    return usesBuffers() && getParent().acceptsCurves();
+  }
 
-    // the end points index
-    private int end;
+  @Override
+  protected Point2D[] convert(final Point2D[] points, final boolean closed) {
+    if(isDisabled() || points.length < 3) return points;
+    return convertPoints(points, closed);
+  }
 
-    /**
-     * Creates a minimal state, i.e. of two directly following points.
-     * 
-     * @param list The original list of points.
-     * @param closed Whether the shape will be drawn closed.
-     * @param start The start point. The end point is {@code (start+1)}.
-     */
-    public State(final Point2D[] list, final boolean closed, final int start) {
-      this.list = list;
-      this.closed = closed;
-      this.start = start;
-      end = start + 1;
+  @Override
+  void convert(final PointBuffer points, final boolean closed,
+      final PointBuffer out) {
+    if(isDisabled() || points.size() < 3) {
+      out.set(points);
+      return;
     }
-
-    /**
-     * Advances the end point by one.
-     */
-    public void advanceEnd() {
-      ++end;
+    switch(mode) {
+      case DOUGLAS_PEUCKER:
+        select(points, douglasPeucker(points, closed), out);
+        break;
+      case VISVALINGAM:
+        select(points, visvalingam(points, closed), out);
+        break;
+      default:
+        greedy(points, closed, out);
     }
+  }
 
-    /**
-     * Decreases the end point by one.
-     */
-    public void decreaseEnd() {
-      --end;
+  /**
+   * Simplifies a shape by extending lines as long as possible. Starting with
+   * the line between a start point and its successor the end point is
+   * advanced as long as all points in-between lie beneath the line. The end
+   * point is then used as next start point.
+   * 
+   * @param points The points of the shape. There are at least three points.
+   * @param closed Whether the shape will be drawn closed.
+   * @param out The buffer receiving the simplified shape.
+   */
+  private void greedy(final PointBuffer points, final boolean closed,
+      final PointBuffer out) {
+    final int n = points.size();
+    final double tsqr = getSqrTolerance();
+    // whether the end point could be used as start point
+    final int maxEnd = closed ? n - 1 : n - 2;
+    int start = 0;
+    while(start < n) {
+      final double sx = points.getX(start);
+      final double sy = points.getY(start);
+      out.add(sx, sy);
+      int end = start + 1;
+      while(end <= maxEnd) {
+        final int e = (end + 1) % n;
+        final double ex = points.getX(e);
+        final double ey = points.getY(e);
+        boolean ok = true;
+        for(int i = start + 1; i <= end; ++i) {
+          if(Line2D.ptSegDistSq(sx, sy, ex, ey, points.getX(i),
+              points.getY(i)) > tsqr) {
+            ok = false;
+            break;
+          }
+        }
+        if(!ok) {
+          break;
+        }
+        ++end;
+      }
+      start = end;
     }
+  }
 
-    /**
-     * Getter.
-     * 
-     * @return Returns the index of the end point.
-     */
-    public int getEndIndex() {
-      return end;
+  /**
+   * Copies the points to keep.
+   * 
+   * @param points The points of the shape.
+   * @param keep Which points to keep.
+   * @param out The buffer receiving the kept points.
+   */
+  private static void select(final PointBuffer points, final boolean[] keep,
+      final PointBuffer out) {
+    for(int i = 0; i < keep.length; ++i) {
+      if(keep[i]) {
+        out.add(points.getX(i), points.getY(i));
+      }
     }
+  }
 
-    /**
-     * Getter.
-     * 
-     * @return Whether the end point could be used as start point.
-     */
-    public boolean validEnd() {
-      return closed ? end < list.length : end < list.length - 1;
+  /**
+   * Getter.
+   * 
+   * @param points The points of the shape.
+   * @param xs The x coordinates of the points.
+   * @param ys The y coordinates of the points.
+   */
+  private static void coordinates(final PointBuffer points, final double[] xs,
+      final double[] ys) {
+    for(int i = 0; i < xs.length; ++i) {
+      xs[i] = points.getX(i);
+      ys[i] = points.getY(i);
     }
+  }
 
-    /**
-     * Getter.
-     * 
-     * @return The end point.
-     */
-    public Point2D getEnd() {
-      return list[end % list.length];
+  /**
+   * Simplifies a shape with the Douglas-Peucker algorithm. The first point is
+   * always kept. A closed shape is split at the point farthest from the first
+   * point.
+   * 
+   * @param points The points of the shape. There are at least three points.
+   * @param closed Whether the shape will be drawn closed.
+   * @return Which points are kept.
+   */
+  private boolean[] douglasPeucker(final PointBuffer points,
+      final boolean closed) {
+    final int n = points.size();
+    final double[] xs = new double[n];
+    final double[] ys = new double[n];
+    coordinates(points, xs, ys);
+    final boolean[] keep = new boolean[n];
+    keep[0] = true;
+    // pending ranges of indices where both ends are kept
+    int[] stack = new int[64];
+    int top = 0;
+    if(closed) {
+      int far = 1;
+      double best = -1;
+      for(int i = 1; i < n; ++i) {
+        final double dx = xs[i] - xs[0];
+        final double dy = ys[i] - ys[0];
+        final double d = dx * dx + dy * dy;
+        if(d > best) {
+          best = d;
+          far = i;
+        }
+      }
+      keep[far] = true;
+      stack[top++] = 0;
+      stack[top++] = far;
+      // the index n wraps around to the first point
+      stack[top++] = far;
+      stack[top++] = n;
+    } else {
+      keep[n - 1] = true;
+      stack[top++] = 0;
+      stack[top++] = n - 1;
     }
-
-    /**
-     * Getter.
-     * 
-     * @return The start point.
-     */
-    public Point2D getStart() {
-      return list[start];
+    final double tsqr = getSqrTolerance();
+    while(top > 0) {
+      final int end = stack[--top];
+      final int start = stack[--top];
+      if(end - start < 2) {
+        continue;
+      }
+      final int e = end % n;
+      int far = -1;
+      double best = tsqr;
+      for(int i = start + 1; i < end; ++i) {
+        final double d = cost(xs, ys, start, i, e);
+        if(d > best) {
+          best = d;
+          far = i;
+        }
+      }
+      if(far < 0) {
+        continue;
+      }
+      keep[far] = true;
+      if(top + 4 > stack.length) {
+        final int[] tmp = new int[stack.length * 2];
+        System.arraycopy(stack, 0, tmp, 0, top);
+        stack = tmp;
+      }
+      stack[top++] = start;
+      stack[top++] = far;
+      stack[top++] = far;
+      stack[top++] = end;
     }
+    return keep;
+  }
 
-    /**
-     * Getter.
-     * 
-     * @param i The index of a point between the points.
-     * @return The squared distance of the point to the line.
-     */
-    private double lineDstSqr(final int i) {
-      return VecUtil.distPointLineSqr(getStart(), getEnd(), list[i]);
+  /**
+   * Simplifies a shape with the Visvalingam-Whyatt algorithm. Each line between
+   * two kept points stores an upper bound of the distance of the points it
+   * replaces. The points are kept in a binary heap ordered by the bound of the
+   * line between their neighbours. That bound is the larger bound of the two
+   * lines it replaces plus the distance of the point to it, so a removal
+   * updates the neighbours in constant time. The first point is always kept
+   * and so are the last point of an open shape and three points of a closed
+   * shape.
+   * 
+   * @param points The points of the shape. There are at least three points.
+   * @param closed Whether the shape will be drawn closed.
+   * @return Which points are kept.
+   */
+  private boolean[] visvalingam(final PointBuffer points,
+      final boolean closed) {
+    final int n = points.size();
+    final double[] xs = new double[n];
+    final double[] ys = new double[n];
+    coordinates(points, xs, ys);
+    final int[] prev = new int[n];
+    final int[] next = new int[n];
+    for(int i = 0; i < n; ++i) {
+      prev[i] = closed ? (i + n - 1) % n : i - 1;
+      next[i] = closed ? (i + 1) % n : i + 1;
     }
-
-    /**
-     * Getter.
-     * 
-     * @return Whether the end point can be increased.
-     */
-    public boolean canTakeNext() {
-      if(!validEnd()) return false;
-      boolean ok = true;
-      advanceEnd();
-      for(int i = start + 1; i < end; ++i) {
-        if(lineDstSqr(i) > getSqrTolerance()) {
-          ok = false;
-          break;
-        }
+    final boolean[] keep = new boolean[n];
+    Arrays.fill(keep, true);
+    // the bound of the line from each point to its next point
+    final double[] error = new double[n];
+    final double[] cost = new double[n];
+    // the heap of point indices and the position of each point in the heap
+    final int[] heap = new int[n];
+    final int[] pos = new int[n];
+    int size = 0;
+    for(int i = 1; i < n; ++i) {
+      if(!closed && i == n - 1) {
+        pos[i] = -1;
+        continue;
+      }
+      cost[i] = cost(xs, ys, error, prev[i], i, next[i]);
+      heap[size] = i;
+      pos[i] = size;
+      ++size;
+    }
+    pos[0] = -1;
+    for(int i = size / 2 - 1; i >= 0; --i) {
+      siftDown(heap, pos, cost, size, i);
+    }
+    int remaining = n;
+    final int min = closed ? 3 : 2;
+    while(size > 0 && remaining > min) {
+      final int i = heap[0];
+      if(cost[i] > tolerance) {
+        break;
+      }
+      // remove the top of the heap
+      --size;
+      pos[i] = -1;
+      if(size > 0) {
+        heap[0] = heap[size];
+        pos[heap[0]] = 0;
+        siftDown(heap, pos, cost, size, 0);
+      }
+      keep[i] = false;
+      --remaining;
+      final int p = prev[i];
+      final int q = next[i];
+      next[p] = q;
+      prev[q] = p;
+      error[p] = cost[i];
+      // the neighbours get a new line that also has to cover the point
+      if(pos[p] >= 0) {
+        cost[p] = cost(xs, ys, error, prev[p], p, q);
+        update(heap, pos, cost, size, pos[p]);
+      }
+      if(pos[q] >= 0) {
+        cost[q] = cost(xs, ys, error, p, q, next[q]);
+        update(heap, pos, cost, size, pos[q]);
       }
-      decreaseEnd();
-      return ok;
     }
+    return keep;
+  }
 
+  /**
+   * Getter.
+   * 
+   * @param xs The x coordinates.
+   * @param ys The y coordinates.
+   * @param a The index of the start of the line.
+   * @param i The index of the point.
+   * @param b The index of the end of the line.
+   * @return The squared distance of the point to the line.
+   */
+  private static double cost(final double[] xs, final double[] ys,
+      final int a, final int i, final int b) {
+    return Line2D.ptSegDistSq(xs[a], ys[a], xs[b], ys[b], xs[i], ys[i]);
   }
 
   /**
-   * Creator.
+   * Getter. The points between the start and the end lie within the bounds of
+   * the lines from the start to the point and from the point to the end. Those
+   * lines lie within the distance of the point to the line from the start to
+   * the end.
    * 
-   * @param states The states.
-   * @return Creates a list of points from the state.
+   * @param xs The x coordinates.
+   * @param ys The y coordinates.
+   * @param error The bounds of the lines starting at each point.
+   * @param a The index of the start of the line.
+   * @param i The index of the point.
+   * @param b The index of the end of the line.
+   * @return An upper bound of the distance of the point and the points between
+   *         the start and the end to the line.
    */
-  private static Point2D[] createArrayFrom(final List<State> states) {
-    final Point2D[] res = new Point2D[states.size()];
-    int p = 0;
-    for(final State s : states) {
-      res[p++] = s.getStart();
+  private static double cost(final double[] xs, final double[] ys,
+      final double[] error, final int a, final int i, final int b) {
+    return Math.max(error[a], error[i]) + Math.sqrt(cost(xs, ys, a, i, b));
+  }
+
+  /**
+   * Restores the heap property for an entry whose cost has changed.
+   * 
+   * @param heap The heap.
+   * @param pos The positions of the points in the heap.
+   * @param cost The costs of the points.
+   * @param size The size of the heap.
+   * @param k The position of the changed entry.
+   */
+  private static void update(final int[] heap, final int[] pos,
+      final double[] cost, final int size, final int k) {
+    int c = k;
+    while(c > 0) {
+      final int parent = (c - 1) / 2;
+      if(cost[heap[parent]] <= cost[heap[c]]) {
+        break;
+      }
+      swap(heap, pos, parent, c);
+      c = parent;
     }
-    return res;
+    siftDown(heap, pos, cost, size, c);
   }
 
-  @Override
-  protected Point2D[] convert(final Point2D[] points, final boolean closed) {
-    if(isDisabled() || points.length < 3) return points;
-    final List<State> states = new LinkedList<State>();
-    int start = 0;
-    while(start < points.length) {
-      final State s = new State(points, closed, start);
-      while(s.canTakeNext()) {
-        s.advanceEnd();
+  /**
+   * Moves an entry down the heap until the heap property holds.
+   * 
+   * @param heap The heap.
+   * @param pos The positions of the points in the heap.
+   * @param cost The costs of the points.
+   * @param size The size of the heap.
+   * @param k The position of the entry.
+   */
+  private static void siftDown(final int[] heap, final int[] pos,
+      final double[] cost, final int size, final int k) {
+    int c = k;
+    for(;;) {
+      final int l = 2 * c + 1;
+      if(l >= size) {
+        break;
       }
-      start = s.getEndIndex();
-      states.add(s);
+      final int r = l + 1;
+      final int m = r < size && cost[heap[r]] < cost[heap[l]] ? r : l;
+      if(cost[heap[c]] <= cost[heap[m]]) {
+        break;
+      }
+      swap(heap, pos, c, m);
+      c = m;
     }
-    return createArrayFrom(states);
+  }
+
+  /**
+   * Swaps two entries of the heap.
+   * 
+   * @param heap The heap.
+   * @param pos The positions of the points in the heap.
+   * @param a The first position.
+   * @param b The second position.
+   */
+  private static void swap(final int[] heap, final int[] pos, final int a,
+      final int b) {
+    final int t = heap[a];
+    heap[a] = heap[b];
+    heap[b] = t;
+    pos[heap[a]] = a;
+    pos[heap[b]] = b;
   }
 
 }